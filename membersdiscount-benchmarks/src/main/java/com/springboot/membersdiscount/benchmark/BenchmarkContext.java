@@ -0,0 +1,49 @@
+package com.springboot.membersdiscount.benchmark;
+
+import com.springboot.membersdiscount.MembersdiscountApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+
+//Starts the application once per benchmark JVM against a file-backed H2 database in MySQL mode
+final class BenchmarkContext {
+    private static ConfigurableApplicationContext context;
+
+    private BenchmarkContext() {
+    }
+
+    static synchronized ConfigurableApplicationContext get() {
+        if (context == null) {
+            Path database = Path.of(System.getProperty("java.io.tmpdir"), "membersdiscount-bench");
+            // passed as command line arguments so they take precedence over application.properties
+            context = new SpringApplicationBuilder(MembersdiscountApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .run(
+                            "--spring.datasource.url=jdbc:h2:file:" + database + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+                            "--spring.datasource.driver-class-name=org.h2.Driver",
+                            "--spring.datasource.username=sa",
+                            "--spring.datasource.password=",
+                            "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                            "--spring.jpa.hibernate.ddl-auto=create-drop",
+                            "--spring.jpa.show-sql=false",
+                            "--logging.level.root=WARN",
+                            "--logging.level.org.hibernate.SQL=WARN",
+                            "--app.mail.from=benchmark@example.com",
+                            "--app.mail.outbox.resume-on-startup=false");
+        }
+        return context;
+    }
+
+    static synchronized void close() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+
+    static <T> T bean(Class<T> type) {
+        return get().getBean(type);
+    }
+}
@@ -0,0 +1,65 @@
+package com.springboot.membersdiscount.benchmark;
+
+import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.service.DiscountService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Ingestion into H2. Each ingestion iteration starts from an empty members table.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class DatabaseBenchmark {
+    private static final int CHUNK_SIZE = 1000;
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private DiscountService discountService;
+    private JdbcTemplate jdbcTemplate;
+    private Member[] members;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        discountService = BenchmarkContext.bean(DiscountService.class);
+        jdbcTemplate = BenchmarkContext.bean(JdbcTemplate.class);
+        members = MemberFixtures.generate(size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    //Runs before the timed call, so only ingestion itself is measured
+    @Setup(Level.Iteration)
+    public void emptyTable() {
+        jdbcTemplate.execute("TRUNCATE TABLE members");
+    }
+
+    //The ingestion job path: chunks upserted through updateOrSaveMembers
+    @Benchmark
+    public int ingestChunked() {
+        int failed = 0;
+        for (int from = 0; from < members.length; from += CHUNK_SIZE) {
+            List<Member> chunk = Arrays.asList(members).subList(from, Math.min(from + CHUNK_SIZE, members.length));
+            failed += discountService.updateOrSaveMembers(chunk).failed();
+        }
+        return failed;
+    }
+
+    //One updateOrSaveMember call per member
+    @Benchmark
+    public void ingestPerMember() {
+        for (Member member : members) {
+            discountService.updateOrSaveMember(member);
+        }
+    }
+}
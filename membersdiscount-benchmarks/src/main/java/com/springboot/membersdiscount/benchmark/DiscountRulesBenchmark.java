@@ -0,0 +1,77 @@
+package com.springboot.membersdiscount.benchmark;
+
+import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.service.DiscountService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+//In-memory eligibility rules of DiscountService over N members
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiscountRulesBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private DiscountService discountService;
+    private Member[] members;
+    private String[] memberSinceText;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        discountService = BenchmarkContext.bean(DiscountService.class);
+        members = MemberFixtures.generate(size);
+        memberSinceText = Arrays.stream(members).map(m -> m.getMemberSince().toString()).toArray(String[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    //The filter and discount pipeline getEligibleDiscountedMembers used to run in Java over the whole table
+    @Benchmark
+    public double eligibleFiltering() {
+        return Arrays.stream(members)
+                .filter(discountService::hasPaid)
+                .filter(discountService::memberMoreThan3Years)
+                .mapToDouble(member -> member.getPrice() - discountService.calculateDiscount(member))
+                .sum();
+    }
+
+    @Benchmark
+    public int memberMoreThan3Years() {
+        int count = 0;
+        for (Member member : members) {
+            if (discountService.memberMoreThan3Years(member)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    //Baseline for the former String memberSince column, which was parsed with LocalDate.parse on every check
+    @Benchmark
+    public void parseMemberSince(Blackhole blackhole) {
+        for (String text : memberSinceText) {
+            blackhole.consume(LocalDate.parse(text));
+        }
+    }
+
+    @Benchmark
+    public double calculateDiscount() {
+        double total = 0;
+        for (Member member : members) {
+            total += discountService.calculateDiscount(member);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,44 @@
+package com.springboot.membersdiscount.benchmark;
+
+import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.service.DiscountService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+//getEligibleDiscountedMembers against an H2 members table loaded once with N members
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EligibleQueryBenchmark {
+    private static final int CHUNK_SIZE = 1000;
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private DiscountService discountService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        discountService = BenchmarkContext.bean(DiscountService.class);
+        Member[] members = MemberFixtures.generate(size);
+        for (int from = 0; from < members.length; from += CHUNK_SIZE) {
+            discountService.updateOrSaveMembers(
+                    Arrays.asList(members).subList(from, Math.min(from + CHUNK_SIZE, members.length)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public int eligibleQuery() {
+        return discountService.getEligibleDiscountedMembers().size();
+    }
+}
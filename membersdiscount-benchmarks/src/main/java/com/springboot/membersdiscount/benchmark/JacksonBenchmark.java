@@ -0,0 +1,57 @@
+package com.springboot.membersdiscount.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.service.MemberFeedReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+//(De)serialization of the member feed, as a whole Member[] and through the streaming MemberFeedReader
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JacksonBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private MemberFeedReader memberFeedReader;
+    private Member[] members;
+    private byte[] json;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = BenchmarkContext.bean(ObjectMapper.class);
+        memberFeedReader = BenchmarkContext.bean(MemberFeedReader.class);
+        members = MemberFixtures.generate(size);
+        json = objectMapper.writeValueAsBytes(members);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public byte[] serializeArray() throws IOException {
+        return objectMapper.writeValueAsBytes(members);
+    }
+
+    @Benchmark
+    public Member[] deserializeArray() throws IOException {
+        return objectMapper.readValue(json, Member[].class);
+    }
+
+    @Benchmark
+    public long deserializeStreaming(Blackhole blackhole) throws IOException {
+        return memberFeedReader.read(new ByteArrayInputStream(json), 1000, blackhole::consume).members();
+    }
+}
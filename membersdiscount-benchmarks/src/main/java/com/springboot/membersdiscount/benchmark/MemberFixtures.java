@@ -0,0 +1,33 @@
+package com.springboot.membersdiscount.benchmark;
+
+import com.springboot.membersdiscount.model.Member;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+//Deterministic synthetic members, so every run of a benchmark works on the same data
+final class MemberFixtures {
+    private static final String[] LOCATIONS = {"Oslo", "Bergen", "Trondheim", "Stavanger", "Stockholm", "Copenhagen"};
+
+    private MemberFixtures() {
+    }
+
+    static Member[] generate(int count) {
+        var random = new SplittableRandom(42);
+        var today = LocalDate.now();
+        Member[] members = new Member[count];
+        for (int i = 0; i < count; i++) {
+            Member member = new Member();
+            member.setId(i + 1L);
+            member.setName("Member " + (i + 1));
+            member.setEmail("member" + (i + 1) + "@example.com");
+            member.setLocation(LOCATIONS[random.nextInt(LOCATIONS.length)]);
+            member.setPrice(50.0 + random.nextInt(10_000) / 100.0);
+            member.setMemberSince(today.minusDays(random.nextInt(365 * 8)));
+            member.setHasPaid(random.nextInt(100) < 60);
+            member.setDeadline(today.plusDays(random.nextInt(-10, 30)));
+            members[i] = member;
+        }
+        return members;
+    }
+}
@@ -0,0 +1,129 @@
+package com.springboot.membersdiscount.analytics;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//The members table laid out in primitive columns for aggregate scans: one array per field, indexed by row. Prices
+//are NaN and days NO_DAY where the member has none; paid flags are a bitset; locations are codes into a dictionary,
+//so grouping by location is an array index instead of a map lookup. Immutable once built.
+public final class MemberColumns {
+    public static final int NO_DAY = Integer.MIN_VALUE;
+
+    private final int rows;
+    private final long[] ids;
+    private final double[] prices;
+    private final int[] memberSince;
+    private final long[] paid;
+    private final int[] locationCodes;
+    private final String[] locations;
+    private final int firstMemberSince;
+    private final LocalDateTime builtAt;
+
+    private MemberColumns(Builder builder) {
+        this.rows = builder.rows;
+        this.ids = Arrays.copyOf(builder.ids, rows);
+        this.prices = Arrays.copyOf(builder.prices, rows);
+        this.memberSince = Arrays.copyOf(builder.memberSince, rows);
+        this.paid = Arrays.copyOf(builder.paid, (rows + 63) >>> 6);
+        this.locationCodes = Arrays.copyOf(builder.locationCodes, rows);
+        this.locations = builder.locations.toArray(String[]::new);
+        this.firstMemberSince = builder.firstMemberSince;
+        this.builtAt = LocalDateTime.now();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public long id(int row) {
+        return ids[row];
+    }
+
+    public double price(int row) {
+        return prices[row];
+    }
+
+    public int memberSince(int row) {
+        return memberSince[row];
+    }
+
+    public boolean paid(int row) {
+        return (paid[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public int locationCode(int row) {
+        return locationCodes[row];
+    }
+
+    //Number of distinct locations; codes run from 0 to locationCount() - 1
+    public int locationCount() {
+        return locations.length;
+    }
+
+    public String location(int code) {
+        return locations[code];
+    }
+
+    //Earliest memberSince day in the store, NO_DAY when no member has one
+    public int firstMemberSince() {
+        return firstMemberSince;
+    }
+
+    public LocalDateTime builtAt() {
+        return builtAt;
+    }
+
+    //Collects rows in growing arrays; not thread safe
+    public static final class Builder {
+        private int rows;
+        private long[] ids = new long[1024];
+        private double[] prices = new double[1024];
+        private int[] memberSince = new int[1024];
+        private long[] paid = new long[16];
+        private int[] locationCodes = new int[1024];
+        private final List<String> locations = new ArrayList<>();
+        private final Map<String, Integer> locationDictionary = new HashMap<>();
+        private int firstMemberSince = NO_DAY;
+
+        private Builder() {
+        }
+
+        public Builder add(long id, String location, double price, int memberSinceDay, boolean hasPaid) {
+            if (rows == ids.length) {
+                int capacity = rows * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                memberSince = Arrays.copyOf(memberSince, capacity);
+                locationCodes = Arrays.copyOf(locationCodes, capacity);
+                paid = Arrays.copyOf(paid, (capacity + 63) >>> 6);
+            }
+            ids[rows] = id;
+            prices[rows] = price;
+            memberSince[rows] = memberSinceDay;
+            if (hasPaid) {
+                paid[rows >>> 6] |= 1L << rows;
+            }
+            locationCodes[rows] = locationDictionary.computeIfAbsent(location, key -> {
+                locations.add(key);
+                return locations.size() - 1;
+            });
+            if (memberSinceDay != NO_DAY && (firstMemberSince == NO_DAY || memberSinceDay < firstMemberSince)) {
+                firstMemberSince = memberSinceDay;
+            }
+            rows++;
+            return this;
+        }
+
+        public MemberColumns build() {
+            return new MemberColumns(this);
+        }
+    }
+}
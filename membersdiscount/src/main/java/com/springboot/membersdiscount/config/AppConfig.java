@@ -1,15 +1,70 @@
 package com.springboot.membersdiscount.config;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
 @Configuration
 public class AppConfig {
 
+    //Pooled Apache HttpClient with timeouts, so a slow upstream cannot hang a scheduler thread.
+    //Gzip responses are requested and decompressed by the client itself.
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(@Value("${app.http.max-connections:50}") int maxConnections,
+                                          @Value("${app.http.max-connections-per-route:20}") int maxConnectionsPerRoute,
+                                          @Value("${app.http.connect-timeout:5s}") Duration connectTimeout,
+                                          @Value("${app.http.read-timeout:60s}") Duration readTimeout,
+                                          @Value("${app.http.pool-timeout:10s}") Duration poolTimeout,
+                                          @Value("${app.http.idle-timeout:30s}") Duration idleTimeout,
+                                          @Value("${app.http.connection-ttl:5m}") Duration connectionTtl,
+                                          @Value("${app.http.retry.max-retries:3}") int maxRetries,
+                                          @Value("${app.http.retry.backoff:500ms}") Duration backoff,
+                                          @Value("${app.http.retry.max-backoff:10s}") Duration maxBackoff) {
+        var connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setTimeToLive(TimeValue.of(connectionTtl))
+                        .build())
+                .build();
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(poolTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                .setRetryStrategy(new JitteredRetryStrategy(maxRetries, backoff, maxBackoff))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(idleTimeout))
+                .build();
+    }
+
+    //Built through RestTemplateBuilder so calls are timed as http.client.requests
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(RestTemplateBuilder builder, CloseableHttpClient httpClient, AppMetrics appMetrics,
+                                     @Value("${app.http.gzip-requests:false}") boolean gzipRequests,
+                                     @Value("${app.http.gzip-min-size:2048}") int gzipMinSize) {
+        builder = builder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
+                .additionalInterceptors(new PayloadMetricsInterceptor(appMetrics));
+        if (gzipRequests) {
+            builder = builder.additionalInterceptors(new GzipRequestInterceptor(gzipMinSize));
+        }
+        return builder.build();
     }
 
 
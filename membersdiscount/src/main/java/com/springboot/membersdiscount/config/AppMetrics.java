@@ -0,0 +1,130 @@
+package com.springboot.membersdiscount.config;
+
+import com.springboot.membersdiscount.model.EmailDispatchJob;
+import com.springboot.membersdiscount.model.PaymentImportResult;
+import com.springboot.membersdiscount.model.UpsertResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+//All custom meters of the application in one place, exposed through /actuator/metrics and /actuator/prometheus
+@Component
+public class AppMetrics {
+    private final MeterRegistry registry;
+    private final Counter membersInserted;
+    private final Counter membersUpdated;
+    private final Counter membersFailed;
+    private final Counter membersUnchanged;
+    private final Counter paymentsMarked;
+    private final Counter paymentsAlreadyPaid;
+    private final Counter paymentsUnknown;
+    private final Counter paymentsDuplicate;
+    private final Counter mailSent;
+    private final Counter mailFailed;
+    private final Timer mailSendTimer;
+
+    public AppMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.membersInserted = memberCounter("inserted");
+        this.membersUpdated = memberCounter("updated");
+        this.membersFailed = memberCounter("failed");
+        this.membersUnchanged = memberCounter("unchanged");
+        this.paymentsMarked = paymentCounter("marked");
+        this.paymentsAlreadyPaid = paymentCounter("already_paid");
+        this.paymentsUnknown = paymentCounter("unknown");
+        this.paymentsDuplicate = paymentCounter("duplicate");
+        this.mailSent = mailCounter("sent");
+        this.mailFailed = mailCounter("failed");
+        this.mailSendTimer = Timer.builder("mail.send.duration")
+                .description("Time to send one batch of emails over a single SMTP session")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private Counter memberCounter(String result) {
+        return Counter.builder("members.upserted")
+                .description("Members written by updateOrSaveMember, by outcome")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private Counter paymentCounter(String result) {
+        return Counter.builder("members.payments")
+                .description("Payment events applied to members, by outcome")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private Counter mailCounter(String result) {
+        return Counter.builder("mail.messages")
+                .description("Emails handed to the SMTP server, by outcome")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    //Times one run of a job such as fetchAndSaveAllMembers
+    public void timeJob(String job, Runnable runnable) {
+        jobTimer(job).record(runnable);
+    }
+
+    public <T> T timeJob(String job, Supplier<T> supplier) {
+        return jobTimer(job).record(supplier);
+    }
+
+    //Times a job that hands emails to the dispatcher until the dispatcher has sent the last of them, not just until
+    //they were queued
+    public EmailDispatchJob timeDispatch(String job, Supplier<EmailDispatchJob> supplier) {
+        var sample = Timer.start(registry);
+        var dispatch = supplier.get();
+        dispatch.completion().whenComplete((finished, error) -> sample.stop(jobTimer(job)));
+        return dispatch;
+    }
+
+    private Timer jobTimer(String job) {
+        return Timer.builder("members.job.duration")
+                .description("Duration of the member jobs")
+                .tag("job", job)
+                .register(registry);
+    }
+
+    public void recordUpsert(UpsertResult result) {
+        membersInserted.increment(result.inserted());
+        membersUpdated.increment(result.updated());
+        membersFailed.increment(result.failed());
+        membersUnchanged.increment(result.unchanged());
+    }
+
+    public void recordPayments(PaymentImportResult result) {
+        paymentsMarked.increment(result.markedPaid());
+        paymentsAlreadyPaid.increment(result.alreadyPaid());
+        paymentsUnknown.increment(result.unknown());
+        paymentsDuplicate.increment(result.duplicates());
+    }
+
+    public Timer.Sample startMailSend() {
+        return Timer.start(registry);
+    }
+
+    public void recordMailSend(Timer.Sample sample, int sent, int failed) {
+        sample.stop(mailSendTimer);
+        mailSent.increment(sent);
+        mailFailed.increment(failed);
+    }
+
+    //Payload sizes of the external API calls, next to the http.client.requests latency timer
+    public void recordHttpPayload(String direction, String method, String uri, long bytes) {
+        DistributionSummary.builder("http.client.payload.size")
+                .description("Size of request and response bodies of external API calls")
+                .baseUnit("bytes")
+                .tag("direction", direction)
+                .tag("method", method)
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(bytes);
+    }
+}
@@ -0,0 +1,39 @@
+package com.springboot.membersdiscount.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.springboot.membersdiscount.service.DiscountService;
+import com.springboot.membersdiscount.service.MemberListVersion;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.CacheResolver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+@EnableCaching
+@Configuration
+public class CacheConfig {
+
+    //Used by Spring Boot for every cache in spring.cache.cache-names. The cached values are whole member lists,
+    //so the size bound counts members rather than entries. recordStats feeds the cache.gets/cache.evictions meters.
+    @Bean
+    public Caffeine<Object, Object> caffeine(@Value("${app.cache.max-members:500000}") long maxMembers,
+                                             @Value("${app.cache.ttl:10m}") Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumWeight(maxMembers)
+                .weigher((Object key, Object value) -> value instanceof Collection<?> members ? members.size() : 1)
+                .expireAfterWrite(ttl)
+                .recordStats();
+    }
+
+    //Used by the cached member lists, so a node serves them again from the database after another node wrote members
+    @Bean
+    public CacheResolver memberCacheResolver(CacheManager cacheManager, MemberListVersion memberListVersion) {
+        return new MemberCacheResolver(cacheManager, memberListVersion, List.of(DiscountService.MEMBERS_CACHE,
+                DiscountService.PAID_MEMBERS_CACHE, DiscountService.UNPAID_MEMBERS_CACHE));
+    }
+}
@@ -0,0 +1,59 @@
+package com.springboot.membersdiscount.config;
+
+import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.TimeValue;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+//Retries idempotent requests (GET, HEAD, PUT, DELETE...) on I/O errors and on 429/502/503/504 with exponential
+//backoff and full jitter, so many clients retrying at once do not hit the upstream in lockstep. POSTs are never retried.
+public class JitteredRetryStrategy extends DefaultHttpRequestRetryStrategy {
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+
+    public JitteredRetryStrategy(int maxRetries, Duration backoff, Duration maxBackoff) {
+        super(maxRetries, TimeValue.ofMilliseconds(backoff.toMillis()),
+                List.of(UnknownHostException.class, SSLException.class),
+                List.of(429, 502, 503, 504));
+        this.backoffMillis = backoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+    }
+
+    //The default strategy retries on status codes regardless of the method, a POST must not be sent twice
+    @Override
+    public boolean retryRequest(HttpResponse response, int execCount, HttpContext context) {
+        HttpRequest request = HttpClientContext.castOrCreate(context).getRequest();
+        return request != null && handleAsIdempotent(request) && super.retryRequest(response, execCount, context);
+    }
+
+    @Override
+    public TimeValue getRetryInterval(HttpRequest request, IOException exception, int execCount, HttpContext context) {
+        return jittered(execCount);
+    }
+
+    //A Retry-After header sent by the upstream wins over the computed backoff, still capped at maxBackoff so an
+    //upstream asking for an hour does not hold the calling thread for an hour
+    @Override
+    public TimeValue getRetryInterval(HttpResponse response, int execCount, HttpContext context) {
+        if (response.containsHeader("Retry-After")) {
+            long retryAfter = super.getRetryInterval(response, execCount, context).toMilliseconds();
+            return TimeValue.ofMilliseconds(Math.min(retryAfter, maxBackoffMillis));
+        }
+        return jittered(execCount);
+    }
+
+    //Random wait between 0 and backoff * 2^(attempt-1), capped at maxBackoff
+    TimeValue jittered(int execCount) {
+        long ceiling = Math.min(maxBackoffMillis, backoffMillis << Math.min(execCount - 1, 20));
+        return TimeValue.ofMilliseconds(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+}
@@ -0,0 +1,35 @@
+package com.springboot.membersdiscount.config;
+
+import com.springboot.membersdiscount.service.MemberListVersion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.SimpleCacheResolver;
+
+import java.util.Collection;
+import java.util.Objects;
+
+//Resolves the member list caches like the default resolver, after clearing all of them when the members changed on
+//any node since the last read. Costs one primary key lookup per cached read.
+@Slf4j
+public class MemberCacheResolver extends SimpleCacheResolver {
+    private final MemberListVersion memberListVersion;
+    private final Collection<String> cacheNames;
+
+    public MemberCacheResolver(CacheManager cacheManager, MemberListVersion memberListVersion,
+                               Collection<String> cacheNames) {
+        super(cacheManager);
+        this.memberListVersion = memberListVersion;
+        this.cacheNames = cacheNames;
+    }
+
+    @Override
+    public Collection<? extends Cache> resolveCaches(CacheOperationInvocationContext<?> context) {
+        if (memberListVersion.changedSinceLastCheck()) {
+            log.debug("Members changed on some node, clearing the cached member lists");
+            cacheNames.stream().map(getCacheManager()::getCache).filter(Objects::nonNull).forEach(Cache::clear);
+        }
+        return super.resolveCaches(context);
+    }
+}
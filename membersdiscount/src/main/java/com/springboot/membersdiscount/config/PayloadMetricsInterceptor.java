@@ -0,0 +1,96 @@
+package com.springboot.membersdiscount.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+//Records request and response body sizes of RestTemplate calls. The response is counted while it is read,
+//so streamed responses are not buffered.
+@RequiredArgsConstructor
+public class PayloadMetricsInterceptor implements ClientHttpRequestInterceptor {
+    private final AppMetrics appMetrics;
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        String method = request.getMethod().name();
+        String uri = request.getURI().getPath();
+        if (body.length > 0) {
+            appMetrics.recordHttpPayload("request", method, uri, body.length);
+        }
+        return new CountingResponse(execution.execute(request, body), method, uri);
+    }
+
+    private class CountingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final String method;
+        private final String uri;
+        private long bytesRead;
+        private boolean recorded;
+        private InputStream body;
+
+        CountingResponse(ClientHttpResponse delegate, String method, String uri) {
+            this.delegate = delegate;
+            this.method = method;
+            this.uri = uri;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new FilterInputStream(delegate.getBody()) {
+                    @Override
+                    public int read() throws IOException {
+                        int b = super.read();
+                        if (b >= 0) {
+                            bytesRead++;
+                        }
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] buffer, int offset, int length) throws IOException {
+                        int n = super.read(buffer, offset, length);
+                        if (n > 0) {
+                            bytesRead += n;
+                        }
+                        return n;
+                    }
+                };
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            if (!recorded) {
+                recorded = true;
+                appMetrics.recordHttpPayload("response", method, uri, bytesRead);
+            }
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.springboot.membersdiscount.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+//Creates the thread pools of the member pipeline. With spring.threads.virtual.enabled=true on Java 21+, Spring Boot
+//runs Tomcat requests and @Scheduled jobs on virtual threads and these executors start a virtual thread per task;
+//the configured pool sizes then only cap how many tasks run at once (DB connections, SMTP sessions, upstream calls).
+//On Java 17 or with the property off they are ordinary fixed pools of platform threads.
+@Slf4j
+@Component
+public class TaskExecutors {
+    private final boolean virtual;
+
+    @Autowired
+    public TaskExecutors(Environment environment) {
+        this(Threading.VIRTUAL.isActive(environment));
+        if (!virtual && environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            log.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads, using platform threads",
+                    Runtime.version().feature());
+        }
+    }
+
+    public TaskExecutors(boolean virtual) {
+        this.virtual = virtual;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    //Runs at most threads tasks at once; further tasks wait without blocking the caller
+    public ExecutorService newBoundedExecutor(String prefix, int threads) {
+        if (virtual) {
+            return new ThreadPerTaskExecutor(threadFactory(prefix), threads);
+        }
+        return Executors.newFixedThreadPool(threads, threadFactory(prefix));
+    }
+
+    public ScheduledExecutorService newScheduledExecutor(String prefix) {
+        return Executors.newSingleThreadScheduledExecutor(threadFactory(prefix));
+    }
+
+    public ThreadFactory threadFactory(String prefix) {
+        return virtual ? new VirtualThreadTaskExecutor(prefix).getVirtualThreadFactory()
+                : new CustomizableThreadFactory(prefix);
+    }
+
+    //Starts a new thread for every task and lets it wait for one of limit permits. Waiting is cheap for virtual
+    //threads, so queued tasks cost a parked thread each instead of a slot in a pool's queue.
+    public static final class ThreadPerTaskExecutor extends AbstractExecutorService {
+        private final ThreadFactory threadFactory;
+        private final Semaphore permits;
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        private volatile boolean shutdown;
+
+        public ThreadPerTaskExecutor(ThreadFactory threadFactory, int limit) {
+            this.threadFactory = threadFactory;
+            this.permits = new Semaphore(limit, true);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Executor has been shut down");
+            }
+            Thread thread = threadFactory.newThread(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    threads.remove(Thread.currentThread());
+                    return;
+                }
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                    threads.remove(Thread.currentThread());
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            threads.forEach(Thread::interrupt);
+            return List.of();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown && threads.isEmpty();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            for (Thread thread : threads) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return isTerminated();
+                }
+                TimeUnit.NANOSECONDS.timedJoin(thread, remaining);
+            }
+            return isTerminated();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.springboot.membersdiscount.controller;
+
+import com.springboot.membersdiscount.model.DiscountCost;
+import com.springboot.membersdiscount.model.LocationTotals;
+import com.springboot.membersdiscount.model.MemberTotals;
+import com.springboot.membersdiscount.model.TenureBucket;
+import com.springboot.membersdiscount.service.MemberAnalyticsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/analytics")
+public class AnalyticsController {
+    private final MemberAnalyticsService memberAnalyticsService;
+
+    @GetMapping("/totals")
+    @ResponseStatus(HttpStatus.OK)
+    public MemberTotals getTotals() {
+        return memberAnalyticsService.totals();
+    }
+
+    @GetMapping("/locations")
+    @ResponseStatus(HttpStatus.OK)
+    public List<LocationTotals> getRevenueByLocation() {
+        return memberAnalyticsService.revenueByLocation();
+    }
+
+    @GetMapping("/discountCost")
+    @ResponseStatus(HttpStatus.OK)
+    public List<DiscountCost> getDiscountCost() {
+        return memberAnalyticsService.discountCost();
+    }
+
+    @GetMapping("/tenure")
+    @ResponseStatus(HttpStatus.OK)
+    public List<TenureBucket> getTenureDistribution() {
+        return memberAnalyticsService.tenureDistribution();
+    }
+
+    @PostMapping("/refresh")
+    @ResponseStatus(HttpStatus.OK)
+    public MemberTotals refresh() {
+        memberAnalyticsService.refresh();
+        return memberAnalyticsService.totals();
+    }
+}
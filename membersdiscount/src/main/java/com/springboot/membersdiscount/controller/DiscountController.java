@@ -1,19 +1,52 @@
 package com.springboot.membersdiscount.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.springboot.membersdiscount.exception.JobNotFoundException;
+import com.springboot.membersdiscount.model.BackgroundJob;
+import com.springboot.membersdiscount.model.DiscountRule;
+import com.springboot.membersdiscount.model.DiscountedMember;
+import com.springboot.membersdiscount.model.EmailDispatchJob;
 import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.model.MemberSlice;
+import com.springboot.membersdiscount.model.MemberSnapshot;
+import com.springboot.membersdiscount.model.PaymentImportResult;
+import com.springboot.membersdiscount.service.DiscountRuleEngine;
 import com.springboot.membersdiscount.service.DiscountService;
+import com.springboot.membersdiscount.service.EmailDispatcher;
+import com.springboot.membersdiscount.service.MemberSnapshotService;
+import com.springboot.membersdiscount.service.PaymentEventReader;
+import com.springboot.membersdiscount.service.PaymentEventService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/members")
 public class DiscountController {
+    private static final int MAX_CURSOR_LIMIT = 2000;
+
     private final DiscountService discountService;
+    private final EmailDispatcher emailDispatcher;
+    private final ObjectMapper objectMapper;
+    private final DiscountRuleEngine discountRuleEngine;
+    private final MemberSnapshotService memberSnapshotService;
+    private final PaymentEventService paymentEventService;
 
     @ResponseStatus(HttpStatus.OK)
     @GetMapping
@@ -21,44 +54,157 @@ public class DiscountController {
         return discountService.fetchAllMembers();
     }
 
-    @GetMapping("/fetchAndSave")
+    @GetMapping("/page")
     @ResponseStatus(HttpStatus.OK)
-    public String fetchAndSaveMembers() {
-        discountService.fetchAndSaveAllMembers();
-        return "Fetched and saved members from external API";
+    public PagedModel<Member> getMembersPage(@PageableDefault(size = 100, sort = "id") Pageable pageable) {
+        return new PagedModel<>(discountService.fetchMembersPage(pageable));
+    }
+
+    //Keyset pagination for deep scans: pass the returned nextCursor as "after" to get the following page
+    @GetMapping("/cursor")
+    @ResponseStatus(HttpStatus.OK)
+    public MemberSlice getMembersAfter(@RequestParam(defaultValue = "0") long after,
+                                       @RequestParam(defaultValue = "500") int limit) {
+        return discountService.fetchMembersAfter(after, Math.max(1, Math.min(limit, MAX_CURSOR_LIMIT)));
+    }
+
+    //Writes all members as newline-delimited JSON while they are read from the database
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public StreamingResponseBody streamMembers() {
+        ObjectWriter writer = objectMapper.writerFor(Member.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return out -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                discountService.streamAllMembers(member -> {
+                    try {
+                        writer.writeValue(generator, member);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+    }
+
+    //Starts fetching and saving members in the background, poll GET /jobs/{id} for its progress
+    @GetMapping("/fetchAndSave")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BackgroundJob fetchAndSaveMembers() {
+        return discountService.startFetchAndSaveAllMembers();
+    }
+
+    @GetMapping("/fetchChanges")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BackgroundJob fetchChangedMembers() {
+        return discountService.startFetchChangedMembers();
     }
 
 
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping("/eligibleFordiscount")
-    public List<Member> sendDiscount() {
+    public List<DiscountedMember> sendDiscount() {
         return discountService.sendDiscountedMembers();
     }
 
+    @GetMapping("/eligibleFordiscount/page")
+    @ResponseStatus(HttpStatus.OK)
+    public PagedModel<DiscountedMember> getEligibleMembersPage(@PageableDefault(size = 100, sort = "id") Pageable pageable) {
+        return new PagedModel<>(discountService.getEligibleDiscountedMembers(pageable));
+    }
+
     @GetMapping("/unpaidMembers")
     @ResponseStatus(HttpStatus.OK)
     public List<Member> MembersWhoHaveNotPaid() {
         return discountService.getMembersWhoHaveNotPaid();
     }
 
+    @GetMapping("/unpaidMembers/page")
+    @ResponseStatus(HttpStatus.OK)
+    public PagedModel<Member> getUnpaidMembersPage(@PageableDefault(size = 100, sort = "id") Pageable pageable) {
+        return new PagedModel<>(discountService.getMembersByPaymentStatus(false, pageable));
+    }
+
     @GetMapping("/paidMembers")
     @ResponseStatus(HttpStatus.OK)
     public List<Member> getMembersWhoHavePaid() {
         return discountService.getMembersWhoHavePaid();
     }
 
-    @PostMapping("/reminders")
+    @GetMapping("/paidMembers/page")
     @ResponseStatus(HttpStatus.OK)
-    public String sendReminders() {
-        discountService.sendReminders();
-        return "Reminders sent successfully!";
+    public PagedModel<Member> getPaidMembersPage(@PageableDefault(size = 100, sort = "id") Pageable pageable) {
+        return new PagedModel<>(discountService.getMembersByPaymentStatus(true, pageable));
     }
 
+    //Marks members as paid from a stream of payment events, one per line: JSON objects with a memberId, or CSV rows
+    //with a memberId column. CSV starts with a header unless the content type is text/csv;header=absent.
+    //Applying the same events again changes nothing.
+    @PostMapping(value = "/payments", consumes = {MediaType.APPLICATION_NDJSON_VALUE, PaymentEventReader.TEXT_CSV})
+    @ResponseStatus(HttpStatus.OK)
+    public PaymentImportResult importPayments(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                              InputStream body) throws IOException {
+        var format = PaymentEventReader.Format.NDJSON;
+        if (contentType.isCompatibleWith(MediaType.parseMediaType(PaymentEventReader.TEXT_CSV))) {
+            format = "absent".equalsIgnoreCase(contentType.getParameter("header"))
+                    ? PaymentEventReader.Format.CSV_WITHOUT_HEADER : PaymentEventReader.Format.CSV;
+        }
+        return paymentEventService.importPayments(body, format);
+    }
+
+    //Queues the reminder emails in the background; the finished job's result is the email dispatch job
+    @PostMapping("/reminders")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BackgroundJob sendReminders() {
+        return discountService.startSendReminders();
+    }
+
+    //Queues the discount emails in the background; the finished job's result is the email dispatch job
     @PostMapping("/sendDiscountToMembers")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BackgroundJob sendDiscountToMembers() {
+        return discountService.startSendDiscountToMembers();
+    }
+
+    @GetMapping("/emailJobs/{jobId}")
+    @ResponseStatus(HttpStatus.OK)
+    public EmailDispatchJob getEmailJob(@PathVariable String jobId) {
+        return emailDispatcher.getJob(jobId)
+                .orElseThrow(() -> new JobNotFoundException("No email job found with ID " + jobId));
+    }
+
+    @GetMapping("/discountRules")
     @ResponseStatus(HttpStatus.OK)
-    public String sendDiscountToMembers() {
-        discountService.sendDiscountToMembers();
-        return "Emails have been successfully sent to eligible members!";
+    public List<DiscountRule> getDiscountRules() {
+        return discountRuleEngine.rules().definitions();
+    }
+
+    //Reloads the rules file right away instead of waiting for the next change check
+    @PostMapping("/discountRules/reload")
+    @ResponseStatus(HttpStatus.OK)
+    public List<DiscountRule> reloadDiscountRules() {
+        return discountRuleEngine.reload().definitions();
+    }
+
+    @GetMapping("/snapshots")
+    @ResponseStatus(HttpStatus.OK)
+    public List<MemberSnapshot> getSnapshots() {
+        return memberSnapshotService.listSnapshots();
+    }
+
+    //Writes all members to a binary snapshot file in the background; the finished job's result describes the file
+    @PostMapping("/snapshots/{name}")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BackgroundJob exportSnapshot(@PathVariable String name) {
+        return memberSnapshotService.startExport(name);
+    }
+
+    //Loads the members of a snapshot file into the database in the background
+    @PostMapping("/snapshots/{name}/import")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BackgroundJob importSnapshot(@PathVariable String name) {
+        return memberSnapshotService.startImport(name);
     }
 
 
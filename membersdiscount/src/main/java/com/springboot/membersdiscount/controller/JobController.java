@@ -0,0 +1,22 @@
+package com.springboot.membersdiscount.controller;
+
+import com.springboot.membersdiscount.exception.JobNotFoundException;
+import com.springboot.membersdiscount.model.BackgroundJob;
+import com.springboot.membersdiscount.service.JobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/jobs")
+public class JobController {
+    private final JobService jobService;
+
+    @GetMapping("/{jobId}")
+    @ResponseStatus(HttpStatus.OK)
+    public BackgroundJob getJob(@PathVariable String jobId) {
+        return jobService.getJob(jobId)
+                .orElseThrow(() -> new JobNotFoundException("No job found with ID " + jobId));
+    }
+}
@@ -0,0 +1,9 @@
+package com.springboot.membersdiscount.email;
+
+//A rendered email ready to be handed to the dispatcher; outboxId links it back to its outbox row, if any
+public record EmailMessage(Long outboxId, String to, String subject, String body) {
+
+    public EmailMessage(String to, String subject, String body) {
+        this(null, to, subject, body);
+    }
+}
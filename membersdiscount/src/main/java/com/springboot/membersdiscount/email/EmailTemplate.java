@@ -0,0 +1,103 @@
+package com.springboot.membersdiscount.email;
+
+import java.text.NumberFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//A template parsed once into literal and placeholder segments, so rendering is only appends into a reused builder.
+//Placeholders are written {parameter} or {parameter,format} where format is "currency", "number" or "date".
+public final class EmailTemplate {
+
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(512));
+    private static final ThreadLocal<Map<Locale, NumberFormat>> CURRENCY_FORMATS = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Map<Locale, NumberFormat>> NUMBER_FORMATS = ThreadLocal.withInitial(HashMap::new);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofLocalizedDate(FormatStyle.MEDIUM);
+    private static final Map<Locale, DateTimeFormatter> DATE_FORMATS = new ConcurrentHashMap<>();
+
+    private interface Segment {
+        void appendTo(StringBuilder out, Object[] values, Locale locale);
+    }
+
+    private final Segment[] segments;
+    private final int parameterCount;
+
+    private EmailTemplate(Segment[] segments, int parameterCount) {
+        this.segments = segments;
+        this.parameterCount = parameterCount;
+    }
+
+    //Parses the source; the values passed to render must follow the order of the given parameter names
+    public static EmailTemplate compile(String source, Currency currency, String... parameters) {
+        List<String> names = Arrays.asList(parameters);
+        List<Segment> segments = new ArrayList<>();
+        int pos = 0;
+        while (pos < source.length()) {
+            int open = source.indexOf('{', pos);
+            if (open < 0) {
+                segments.add(literal(source.substring(pos)));
+                break;
+            }
+            int close = source.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at position " + open + " in email template");
+            }
+            if (open > pos) {
+                segments.add(literal(source.substring(pos, open)));
+            }
+            segments.add(placeholder(source.substring(open + 1, close), names, currency));
+            pos = close + 1;
+        }
+        return new EmailTemplate(segments.toArray(Segment[]::new), parameters.length);
+    }
+
+    public String render(Locale locale, Object... values) {
+        if (values.length != parameterCount) {
+            throw new IllegalArgumentException("Expected " + parameterCount + " template values but got " + values.length);
+        }
+        StringBuilder out = BUILDER.get();
+        out.setLength(0);
+        for (Segment segment : segments) {
+            segment.appendTo(out, values, locale);
+        }
+        return out.toString();
+    }
+
+    private static Segment literal(String text) {
+        return (out, values, locale) -> out.append(text);
+    }
+
+    private static Segment placeholder(String spec, List<String> names, Currency currency) {
+        int comma = spec.indexOf(',');
+        String name = (comma < 0 ? spec : spec.substring(0, comma)).trim();
+        String format = comma < 0 ? "" : spec.substring(comma + 1).trim();
+        int index = names.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown placeholder {" + name + "} in email template");
+        }
+        return switch (format) {
+            case "" -> (out, values, locale) -> out.append(values[index]);
+            case "currency" -> (out, values, locale) -> out.append(currencyFormat(locale, currency).format(values[index]));
+            case "number" -> (out, values, locale) -> out.append(
+                    NUMBER_FORMATS.get().computeIfAbsent(locale, NumberFormat::getNumberInstance).format(values[index]));
+            case "date" -> (out, values, locale) -> out.append(values[index] == null ? "" :
+                    DATE_FORMATS.computeIfAbsent(locale, DATE_FORMAT::withLocale).format((LocalDate) values[index]));
+            default -> throw new IllegalArgumentException("Unknown format '" + format + "' for placeholder {" + name + "}");
+        };
+    }
+
+    //NumberFormat is not thread safe, so each thread keeps its own formatter per locale
+    private static NumberFormat currencyFormat(Locale locale, Currency currency) {
+        NumberFormat format = CURRENCY_FORMATS.get().computeIfAbsent(locale, NumberFormat::getCurrencyInstance);
+        format.setCurrency(currency);
+        return format;
+    }
+}
@@ -0,0 +1,90 @@
+package com.springboot.membersdiscount.email;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.springboot.membersdiscount.email.EmailTemplet.*;
+
+//Registry of compiled email templates per template name and locale; the locale is chosen from Member.location
+@Component
+public class EmailTemplates {
+
+    private record Key(String template, Locale locale) {
+    }
+
+    private record Compiled(EmailTemplate subject, EmailTemplate body) {
+    }
+
+    private final Map<Key, Compiled> templates = new ConcurrentHashMap<>();
+    private final Map<Key, Compiled> resolved = new ConcurrentHashMap<>();
+    private final Map<String, Locale> locationLocales = new HashMap<>();
+    private final Locale defaultLocale;
+    private final Currency currency;
+
+    //locationLocales is a comma separated list of location:languageTag pairs, e.g. "Oslo:nb-NO,Bergen:nb-NO"
+    public EmailTemplates(@Value("${app.mail.default-locale:en-US}") String defaultLocale,
+                          @Value("${app.mail.currency:USD}") String currency,
+                          @Value("${app.mail.location-locales:}") String locationLocales) {
+        this.defaultLocale = Locale.forLanguageTag(defaultLocale);
+        this.currency = Currency.getInstance(currency);
+        for (String pair : locationLocales.split(",")) {
+            int colon = pair.indexOf(':');
+            if (colon > 0) {
+                this.locationLocales.put(pair.substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                        Locale.forLanguageTag(pair.substring(colon + 1).trim()));
+            }
+        }
+
+        register(DISCOUNT, Locale.ROOT, DISCOUNT_SUBJECT, DISCOUNT_BODY, "name", "percent", "originalPrice", "discountedPrice");
+        register(REMINDER, Locale.ROOT, REMINDER_SUBJECT, REMINDER_BODY, "name", "deadline");
+        register(OVERDUE_REMINDER, Locale.ROOT, OVERDUE_REMINDER_SUBJECT, OVERDUE_REMINDER_BODY, "name", "deadline");
+        register(DISCOUNT, Locale.forLanguageTag("nb"), DISCOUNT_SUBJECT_NB, DISCOUNT_BODY_NB,
+                "name", "percent", "originalPrice", "discountedPrice");
+        register(REMINDER, Locale.forLanguageTag("nb"), REMINDER_SUBJECT_NB, REMINDER_BODY_NB, "name", "deadline");
+        register(OVERDUE_REMINDER, Locale.forLanguageTag("nb"), OVERDUE_REMINDER_SUBJECT_NB, OVERDUE_REMINDER_BODY_NB,
+                "name", "deadline");
+    }
+
+    //Compiles a template once; Locale.ROOT registers the fallback used when no localized version exists.
+    //Subject and body take the same parameters.
+    public void register(String template, Locale locale, String subject, String body, String... parameters) {
+        templates.put(new Key(template, locale), new Compiled(
+                EmailTemplate.compile(subject, currency, parameters), EmailTemplate.compile(body, currency, parameters)));
+        resolved.clear();
+    }
+
+    public Locale localeFor(String location) {
+        return location == null ? defaultLocale
+                : locationLocales.getOrDefault(location.trim().toLowerCase(Locale.ROOT), defaultLocale);
+    }
+
+    //Renders the template in the language of the member's location, values follow the registered parameter order
+    public RenderedEmail render(String template, String location, Object... values) {
+        Locale locale = localeFor(location);
+        Compiled compiled = resolved.computeIfAbsent(new Key(template, locale), this::lookup);
+        return new RenderedEmail(compiled.subject().render(locale, values), compiled.body().render(locale, values));
+    }
+
+    //Exact locale first, then its language, then the fallback
+    private Compiled lookup(Key key) {
+        String template = key.template();
+        Locale locale = key.locale();
+        Compiled compiled = templates.get(new Key(template, locale));
+        if (compiled == null) {
+            compiled = templates.get(new Key(template, Locale.forLanguageTag(locale.getLanguage())));
+        }
+        if (compiled == null) {
+            compiled = templates.get(new Key(template, Locale.ROOT));
+        }
+        if (compiled == null) {
+            throw new IllegalArgumentException("No email template registered with name " + template);
+        }
+        return compiled;
+    }
+}
@@ -1,22 +1,53 @@
 package com.springboot.membersdiscount.email;
 
+//Template sources, compiled once by EmailTemplates. Placeholders are {parameter} or {parameter,format}.
 public class EmailTemplet {
 
-    public static final String DISCOUNT_SUBJECT = "Congratulations! You got a 15% discount";
+    public static final String DISCOUNT = "discount";
+    public static final String REMINDER = "reminder";
+    public static final String OVERDUE_REMINDER = "overdueReminder";
+
+    public static final String DISCOUNT_SUBJECT = "Congratulations! You got a {percent,number}% discount";
 
     public static final String DISCOUNT_BODY =
-                "Hello %s,\n\n" +
-                        "You have received a 15%% discount!\n" +
-                        "Original Price: $%.2f\n" +
-                        "Discounted Price: $%.2f\n\n" +
+                "Hello {name},\n\n" +
+                        "You have received a {percent,number}% discount!\n" +
+                        "Original Price: {originalPrice,currency}\n" +
+                        "Discounted Price: {discountedPrice,currency}\n\n" +
                         "Thank you!";
 
     public static final String REMINDER_SUBJECT ="Payment Reminder";
     public static final String REMINDER_BODY =
-            "Hello %s,\n\n" +
-                    "Your payment is due on %s.\n" +
+            "Hello {name},\n\n" +
+                    "Your payment is due on {deadline}.\n" +
                     "Please make your payment before the deadline.\n\nThank you!";
 
-}
+    public static final String OVERDUE_REMINDER_SUBJECT = "Overdue Payment";
+    public static final String OVERDUE_REMINDER_BODY =
+            "Hello {name},\n\n" +
+                    "Your payment was due on {deadline} and has not been received yet.\n" +
+                    "Please make your payment as soon as possible.\n\nThank you!";
+
+    public static final String DISCOUNT_SUBJECT_NB = "Gratulerer! Du har fått {percent,number} % rabatt";
+
+    public static final String DISCOUNT_BODY_NB =
+            "Hei {name},\n\n" +
+                    "Du har fått {percent,number} % rabatt!\n" +
+                    "Opprinnelig pris: {originalPrice,currency}\n" +
+                    "Rabattert pris: {discountedPrice,currency}\n\n" +
+                    "Takk!";
 
+    public static final String REMINDER_SUBJECT_NB = "Betalingspåminnelse";
+    public static final String REMINDER_BODY_NB =
+            "Hei {name},\n\n" +
+                    "Betalingen din forfaller {deadline,date}.\n" +
+                    "Vennligst betal innen fristen.\n\nTakk!";
+
+    public static final String OVERDUE_REMINDER_SUBJECT_NB = "Forfalt betaling";
+    public static final String OVERDUE_REMINDER_BODY_NB =
+            "Hei {name},\n\n" +
+                    "Betalingen din forfalt {deadline,date} og er ikke mottatt ennå.\n" +
+                    "Vennligst betal så snart som mulig.\n\nTakk!";
+
+}
 
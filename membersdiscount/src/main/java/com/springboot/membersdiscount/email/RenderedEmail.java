@@ -0,0 +1,4 @@
+package com.springboot.membersdiscount.email;
+
+public record RenderedEmail(String subject, String body) {
+}
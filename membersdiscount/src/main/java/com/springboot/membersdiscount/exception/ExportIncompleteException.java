@@ -0,0 +1,16 @@
+package com.springboot.membersdiscount.exception;
+
+import lombok.Getter;
+
+import java.util.List;
+
+//Some chunks of an export were still rejected after the last attempt; carries the IDs that were not delivered
+@Getter
+public class ExportIncompleteException extends RuntimeException {
+    private final List<Long> undeliveredIds;
+
+    public ExportIncompleteException(String message, List<Long> undeliveredIds) {
+        super(message);
+        this.undeliveredIds = undeliveredIds;
+    }
+}
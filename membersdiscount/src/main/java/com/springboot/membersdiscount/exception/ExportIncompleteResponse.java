@@ -0,0 +1,17 @@
+package com.springboot.membersdiscount.exception;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ExportIncompleteResponse {
+    private LocalDateTime timestamp;
+    private int status;
+    private String error;
+    private String path;
+    private List<Long> undeliveredIds;
+}
@@ -1,6 +1,7 @@
 package com.springboot.membersdiscount.exception;
 
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -37,4 +38,66 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
     }
 
+    @ExceptionHandler(JobNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleJobNotFound(
+            JobNotFoundException ex, HttpServletRequest request) {
+
+        var response = new ErrorResponse(
+                LocalDateTime.now(),
+                HttpStatus.NOT_FOUND.value(),
+                ex.getMessage(),
+                request.getRequestURI()
+        );
+
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
+    @ExceptionHandler(SnapshotNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleSnapshotNotFound(
+            SnapshotNotFoundException ex, HttpServletRequest request) {
+
+        var response = new ErrorResponse(
+                LocalDateTime.now(),
+                HttpStatus.NOT_FOUND.value(),
+                ex.getMessage(),
+                request.getRequestURI()
+        );
+
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
+    //The upstream did not accept every chunk, so the caller learns which members still have to be sent
+    @ExceptionHandler(ExportIncompleteException.class)
+    public ResponseEntity<ExportIncompleteResponse> handleExportIncomplete(
+            ExportIncompleteException ex, HttpServletRequest request) {
+
+        var response = new ExportIncompleteResponse(
+                LocalDateTime.now(),
+                HttpStatus.BAD_GATEWAY.value(),
+                ex.getMessage(),
+                request.getRequestURI(),
+                ex.getUndeliveredIds()
+        );
+
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(response);
+    }
+
+    @ExceptionHandler(JobAlreadyRunningException.class)
+    public ResponseEntity<ErrorResponse> handleJobAlreadyRunning(
+            JobAlreadyRunningException ex, HttpServletRequest request) {
+
+        var response = new ErrorResponse(
+                LocalDateTime.now(),
+                HttpStatus.CONFLICT.value(),
+                ex.getMessage(),
+                request.getRequestURI()
+        );
+
+        var conflict = ResponseEntity.status(HttpStatus.CONFLICT);
+        if (ex.getJobId() != null) {
+            conflict.header(HttpHeaders.LOCATION, "/jobs/" + ex.getJobId());
+        }
+        return conflict.body(response);
+    }
+
 }
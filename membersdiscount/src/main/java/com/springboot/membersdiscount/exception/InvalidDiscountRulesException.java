@@ -0,0 +1,11 @@
+package com.springboot.membersdiscount.exception;
+
+public class InvalidDiscountRulesException extends RuntimeException {
+    public InvalidDiscountRulesException(String message) {
+        super(message);
+    }
+
+    public InvalidDiscountRulesException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
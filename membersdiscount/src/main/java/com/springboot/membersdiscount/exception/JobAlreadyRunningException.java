@@ -0,0 +1,13 @@
+package com.springboot.membersdiscount.exception;
+
+import lombok.Getter;
+
+@Getter
+public class JobAlreadyRunningException extends RuntimeException {
+    private final String jobId;
+
+    public JobAlreadyRunningException(String message, String jobId) {
+        super(message);
+        this.jobId = jobId;
+    }
+}
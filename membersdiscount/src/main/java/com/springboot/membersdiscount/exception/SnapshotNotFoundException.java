@@ -0,0 +1,7 @@
+package com.springboot.membersdiscount.exception;
+
+public class SnapshotNotFoundException extends RuntimeException {
+    public SnapshotNotFoundException(String message) {
+        super(message);
+    }
+}
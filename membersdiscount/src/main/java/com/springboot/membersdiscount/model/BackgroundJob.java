@@ -0,0 +1,84 @@
+package com.springboot.membersdiscount.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Status and progress of one long running operation, e.g. a member sync or queuing a campaign
+@Getter
+public class BackgroundJob {
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String type;
+    private final String trigger;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile Status status = Status.QUEUED;
+    private volatile Long total;
+    private volatile String error;
+    private volatile Object result;
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong processed = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong failed = new AtomicLong();
+
+    public BackgroundJob(String type, String trigger) {
+        this.type = type;
+        this.trigger = trigger;
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    //Items processed per second since the job started
+    public double getThroughput() {
+        if (startedAt == null) {
+            return 0;
+        }
+        long millis = Duration.between(startedAt, finishedAt != null ? finishedAt : LocalDateTime.now()).toMillis();
+        return millis == 0 ? 0 : processed.get() * 1000.0 / millis;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    //processed counts every item handled, including the failed ones
+    public void recordProgress(long processed, long failed) {
+        this.processed.addAndGet(processed);
+        this.failed.addAndGet(failed);
+    }
+
+    public void start() {
+        startedAt = LocalDateTime.now();
+        status = Status.RUNNING;
+    }
+
+    public void complete(Object result) {
+        this.result = result;
+        finishedAt = LocalDateTime.now();
+        status = Status.COMPLETED;
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        finishedAt = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+}
@@ -0,0 +1,22 @@
+package com.springboot.membersdiscount.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+//A job lock shared by every node: the job is held by lockedBy until lockedUntil, after that any node may take it
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "cluster_locks")
+public class ClusterLock {
+    @Id
+    private String name;
+    private LocalDateTime lockedUntil;
+    private LocalDateTime lockedAt;
+    private String lockedBy;
+}
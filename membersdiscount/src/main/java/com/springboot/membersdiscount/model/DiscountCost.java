@@ -0,0 +1,5 @@
+package com.springboot.membersdiscount.model;
+
+//What one discount rule costs today: the members it matches, their full price and the discount they get in total
+public record DiscountCost(String rule, double percent, long members, double fullPrice, double discount) {
+}
@@ -0,0 +1,15 @@
+package com.springboot.membersdiscount.model;
+
+import java.util.List;
+
+//One discount rule as written in the rules file. A member matches when every condition that is set holds:
+//member for more than minTenureYears years, paid (unless requirePaid is false), located in one of the locations
+//and priced within [minPrice, maxPrice). Rules are tried in file order and the first match sets the discount.
+public record DiscountRule(String name,
+                           Integer minTenureYears,
+                           Boolean requirePaid,
+                           List<String> locations,
+                           Double minPrice,
+                           Double maxPrice,
+                           double percent) {
+}
@@ -0,0 +1,5 @@
+package com.springboot.membersdiscount.model;
+
+//Published after a new set of discount rules replaced the previous one
+public record DiscountRulesReloadedEvent(int rules) {
+}
@@ -0,0 +1,8 @@
+package com.springboot.membersdiscount.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+//A member eligible for a discount with both prices; serialized with the discounted price as "price" like Member
+public record DiscountedMember(Long id, String name, String email, String location, Double originalPrice,
+                               @JsonProperty("price") Double discountedPrice, double discountPercent) {
+}
@@ -0,0 +1,112 @@
+package com.springboot.membersdiscount.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Progress of one batch of emails handed to the dispatcher. The total grows as the dispatcher queues the messages, so
+//it always matches what is actually sent; a job whose messages could not be read to the end finishes as FAILED.
+@Getter
+public class EmailDispatchJob {
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String type;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private volatile LocalDateTime finishedAt;
+    private volatile Status status = Status.RUNNING;
+    private volatile String error;
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger sent = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger remaining = new AtomicInteger();
+    @Getter(AccessLevel.NONE)
+    private volatile boolean allQueued;
+    @Getter(AccessLevel.NONE)
+    private final AtomicBoolean finished = new AtomicBoolean();
+    @Getter(AccessLevel.NONE)
+    private final CompletableFuture<EmailDispatchJob> completion = new CompletableFuture<>();
+
+    public EmailDispatchJob(String type) {
+        this.type = type;
+    }
+
+    //Completes once the job is COMPLETED or FAILED
+    public CompletableFuture<EmailDispatchJob> completion() {
+        return completion;
+    }
+
+    public int getTotal() {
+        return total.get();
+    }
+
+    public int getSent() {
+        return sent.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    public int getSkipped() {
+        return skipped.get();
+    }
+
+    //Counts messages before they are handed to the workers, so the job cannot complete while they are on their way
+    public void recordQueued(int count) {
+        total.addAndGet(count);
+        remaining.addAndGet(count);
+    }
+
+    //No more messages follow; the job completes once the queued ones are done
+    public void queuingFinished() {
+        allQueued = true;
+        if (remaining.get() == 0) {
+            finish(Status.COMPLETED, null);
+        }
+    }
+
+    //Reading the messages failed; the ones already queued are still sent, but the job is over
+    public void fail(String error) {
+        finish(Status.FAILED, error);
+    }
+
+    public void recordSent() {
+        sent.incrementAndGet();
+        done();
+    }
+
+    public void recordFailed() {
+        failed.incrementAndGet();
+        done();
+    }
+
+    public void recordSkipped() {
+        skipped.incrementAndGet();
+        done();
+    }
+
+    private void done() {
+        if (remaining.decrementAndGet() == 0 && allQueued) {
+            finish(Status.COMPLETED, null);
+        }
+    }
+
+    private void finish(Status outcome, String error) {
+        if (finished.compareAndSet(false, true)) {
+            this.error = error;
+            finishedAt = LocalDateTime.now();
+            status = outcome;
+            completion.complete(this);
+        }
+    }
+}
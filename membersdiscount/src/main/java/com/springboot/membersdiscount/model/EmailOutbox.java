@@ -0,0 +1,56 @@
+package com.springboot.membersdiscount.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+//One email of a campaign, recorded before it is sent so an interrupted campaign can resume where it stopped.
+//A dispatch claims the emails it sends as SENDING under its owner token until leaseUntil, so no other dispatch on any
+//node sends them meanwhile; a lease that ran out means the dispatch died and the email can be claimed again.
+@Data
+@Entity
+@Table(name = "email_outbox",
+        uniqueConstraints = @UniqueConstraint(name = "uk_outbox_campaign_member", columnNames = {"campaign", "member_id"}),
+        indexes = @Index(name = "idx_outbox_campaign_status", columnList = "campaign, status, id"))
+public class EmailOutbox {
+    public enum Status { PENDING, SENDING, SENT, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    private String campaign;
+    @Column(name = "member_id", nullable = false)
+    private Long memberId;
+    private String recipient;
+    private String subject;
+    @Column(length = 4000)
+    private String body;
+    // a plain varchar rather than a MySQL enum, so a new state does not need the column type altered
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(nullable = false, length = 16)
+    private Status status;
+    private int attempts;
+    private String owner;
+    private LocalDateTime leaseUntil;
+    private String lastError;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    public static EmailOutbox pending(String campaign, Long memberId, String recipient, String subject, String body) {
+        var entry = new EmailOutbox();
+        entry.setCampaign(campaign);
+        entry.setMemberId(memberId);
+        entry.setRecipient(recipient);
+        entry.setSubject(subject);
+        entry.setBody(body);
+        entry.setStatus(Status.PENDING);
+        entry.setCreatedAt(LocalDateTime.now());
+        entry.setUpdatedAt(entry.getCreatedAt());
+        return entry;
+    }
+}
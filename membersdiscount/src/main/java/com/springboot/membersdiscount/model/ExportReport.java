@@ -0,0 +1,12 @@
+package com.springboot.membersdiscount.model;
+
+import java.util.List;
+
+//Outcome of sending members to the external API in chunks, with the members of the chunks that were not accepted
+public record ExportReport<T>(int members, int chunks, int sentChunks, int failedChunks, int attempts, long durationMillis,
+                              List<T> undelivered) {
+
+    public boolean complete() {
+        return failedChunks == 0;
+    }
+}
@@ -0,0 +1,6 @@
+package com.springboot.membersdiscount.model;
+
+//Member counts, revenue and outstanding payments of one location
+public record LocationTotals(String location, long members, long paid, long unpaid, double revenue,
+                             double outstanding) {
+}
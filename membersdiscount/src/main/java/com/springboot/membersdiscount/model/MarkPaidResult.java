@@ -0,0 +1,13 @@
+package com.springboot.membersdiscount.model;
+
+//Outcome of marking one batch of distinct member IDs as paid: members newly marked, members who had already paid
+//and IDs that match no member
+public record MarkPaidResult(int markedPaid, int alreadyPaid, int unknown) {
+
+    public static final MarkPaidResult EMPTY = new MarkPaidResult(0, 0, 0);
+
+    public MarkPaidResult plus(MarkPaidResult other) {
+        return new MarkPaidResult(markedPaid + other.markedPaid, alreadyPaid + other.alreadyPaid,
+                unknown + other.unknown);
+    }
+}
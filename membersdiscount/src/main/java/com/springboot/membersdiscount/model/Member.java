@@ -1,5 +1,6 @@
 package com.springboot.membersdiscount.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.Data;
@@ -8,7 +9,10 @@ import java.time.LocalDate;
 
 @Data
 @Entity
-@Table(name = "members")
+@Table(name = "members", indexes = {
+        @Index(name = "idx_members_paid_since", columnList = "has_paid, member_since"),
+        @Index(name = "idx_members_paid_deadline", columnList = "has_paid, deadline")
+})
 public class Member {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -17,9 +21,12 @@ public class Member {
     private String email;
     private String location;
     private Double price;
-    private String memberSince;
+    private LocalDate memberSince;
     @Column(name = "has_paid", nullable = false, columnDefinition = "BOOLEAN DEFAULT FALSE")
     @JsonProperty("hasPaid")
     private Boolean hasPaid;
     private LocalDate deadline;
+    //MemberFingerprint of the row as last written by the sync
+    @JsonIgnore
+    private Long fingerprint;
 }
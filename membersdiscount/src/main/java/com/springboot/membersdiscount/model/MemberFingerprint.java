@@ -0,0 +1,47 @@
+package com.springboot.membersdiscount.model;
+
+import java.time.LocalDate;
+
+//64-bit FNV-1a hash over the fields the external API owns, stored with each row so an unchanged member can be
+//recognised without comparing column by column
+public final class MemberFingerprint {
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private MemberFingerprint() {
+    }
+
+    public static long of(Member member) {
+        long hash = OFFSET_BASIS;
+        hash = mix(hash, member.getName());
+        hash = mix(hash, member.getEmail());
+        hash = mix(hash, member.getLocation());
+        hash = mix(hash, member.getPrice() == null ? Long.MIN_VALUE : Double.doubleToLongBits(member.getPrice()));
+        hash = mix(hash, epochDay(member.getMemberSince()));
+        hash = mix(hash, Boolean.TRUE.equals(member.getHasPaid()) ? 1 : 0);
+        hash = mix(hash, epochDay(member.getDeadline()));
+        return hash;
+    }
+
+    private static long epochDay(LocalDate date) {
+        return date == null ? Long.MIN_VALUE : date.toEpochDay();
+    }
+
+    // a separator after every field keeps ("ab", "c") and ("a", "bc") apart, null hashes differently from ""
+    private static long mix(long hash, String value) {
+        if (value == null) {
+            return mix(hash, Long.MIN_VALUE);
+        }
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * PRIME;
+        }
+        return (hash ^ 0xff) * PRIME;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int shift = 0; shift < 64; shift += 8) {
+            hash = (hash ^ ((value >>> shift) & 0xff)) * PRIME;
+        }
+        return hash;
+    }
+}
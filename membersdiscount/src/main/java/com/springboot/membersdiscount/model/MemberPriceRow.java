@@ -0,0 +1,13 @@
+package com.springboot.membersdiscount.model;
+
+import java.time.LocalDate;
+
+//Read-only projection of the member fields needed to price and email a discount, loaded without managed entities
+public record MemberPriceRow(Long id, String name, String email, String location, Double price,
+                             LocalDate memberSince, Boolean hasPaid) {
+
+    public static MemberPriceRow of(Member member) {
+        return new MemberPriceRow(member.getId(), member.getName(), member.getEmail(), member.getLocation(),
+                member.getPrice(), member.getMemberSince(), member.getHasPaid());
+    }
+}
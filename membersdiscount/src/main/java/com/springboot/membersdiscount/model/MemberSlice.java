@@ -0,0 +1,7 @@
+package com.springboot.membersdiscount.model;
+
+import java.util.List;
+
+//One keyset page of members ordered by ID; nextCursor is the ID to continue after, or null on the last page
+public record MemberSlice(List<Member> members, Long nextCursor) {
+}
@@ -0,0 +1,7 @@
+package com.springboot.membersdiscount.model;
+
+import java.time.LocalDateTime;
+
+//A snapshot file of the members table: its name, how many members it holds, its size and when it was written
+public record MemberSnapshot(String name, long members, long bytes, LocalDateTime createdAt) {
+}
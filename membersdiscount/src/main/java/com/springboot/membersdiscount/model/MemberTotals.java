@@ -0,0 +1,9 @@
+package com.springboot.membersdiscount.model;
+
+import java.time.LocalDateTime;
+
+//Member counts with the price sum of paid members (revenue) and unpaid members (outstanding), as of the time the
+//analytics store was last built
+public record MemberTotals(long members, long paid, long unpaid, double revenue, double outstanding,
+                           LocalDateTime asOf) {
+}
@@ -0,0 +1,7 @@
+package com.springboot.membersdiscount.model;
+
+import java.util.List;
+
+//Published after members were written, carrying their state as stored
+public record MembersChangedEvent(List<Member> members) {
+}
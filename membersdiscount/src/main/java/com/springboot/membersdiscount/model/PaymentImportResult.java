@@ -0,0 +1,8 @@
+package com.springboot.membersdiscount.model;
+
+//Outcome of applying a stream of payment events: events read, lines that could not be parsed, events repeating a
+//member ID named earlier in the stream, members newly marked as paid, members who had already paid and member IDs
+//that do not exist. Every event is either a duplicate or counted once in markedPaid, alreadyPaid or unknown.
+public record PaymentImportResult(long events, long invalid, long duplicates, long markedPaid, long alreadyPaid,
+                                  long unknown, long durationMillis) {
+}
@@ -0,0 +1,26 @@
+package com.springboot.membersdiscount.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+//Where the last successful sync of a source left off: when it started, and the ETag of the response it read
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "sync_watermarks")
+public class SyncWatermark {
+    @Id
+    private String source;
+    private LocalDateTime lastSyncAt;
+    private String etag;
+    private LocalDateTime lastCheckedAt;
+
+    public SyncWatermark(String source) {
+        this.source = source;
+    }
+}
@@ -0,0 +1,5 @@
+package com.springboot.membersdiscount.model;
+
+//Members who have been members for the given number of full years
+public record TenureBucket(int years, long members, long paid) {
+}
@@ -0,0 +1,21 @@
+package com.springboot.membersdiscount.model;
+
+//Outcome of writing one chunk of members: how many rows were inserted, updated, could not be written
+//or were skipped because their fingerprint showed nothing changed
+public record UpsertResult(int inserted, int updated, int failed, int unchanged) {
+
+    public static final UpsertResult EMPTY = new UpsertResult(0, 0, 0, 0);
+
+    public UpsertResult(int inserted, int updated, int failed) {
+        this(inserted, updated, failed, 0);
+    }
+
+    public int processed() {
+        return inserted + updated + failed + unchanged;
+    }
+
+    public UpsertResult plus(UpsertResult other) {
+        return new UpsertResult(inserted + other.inserted, updated + other.updated, failed + other.failed,
+                unchanged + other.unchanged);
+    }
+}
@@ -0,0 +1,48 @@
+package com.springboot.membersdiscount.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+//Takes and releases the rows of cluster_locks with single conditional statements, so two nodes racing for the same
+//lock cannot both win: the database decides which update or insert goes through.
+@Repository
+@RequiredArgsConstructor
+public class ClusterLockRepository {
+
+    private static final String TAKE_SQL = """
+            UPDATE cluster_locks SET locked_until = ?, locked_at = ?, locked_by = ?
+            WHERE name = ? AND locked_until <= ?
+            """;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO cluster_locks (name, locked_until, locked_at, locked_by) VALUES (?, ?, ?, ?)";
+
+    private static final String RELEASE_SQL =
+            "UPDATE cluster_locks SET locked_until = ? WHERE name = ? AND locked_by = ? AND locked_at = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    //Takes the lock until the given time if it is free or expired; the first use of a lock name creates its row
+    public boolean tryLock(String name, String node, LocalDateTime now, LocalDateTime until) {
+        var lockedAt = Timestamp.valueOf(now);
+        var lockedUntil = Timestamp.valueOf(until);
+        if (jdbcTemplate.update(TAKE_SQL, lockedUntil, lockedAt, node, name, lockedAt) == 1) {
+            return true;
+        }
+        try {
+            return jdbcTemplate.update(INSERT_SQL, name, lockedUntil, lockedAt, node) == 1;
+        } catch (DuplicateKeyException e) {
+            return false; // the row exists and another node holds the lock
+        }
+    }
+
+    //Keeps the lock until the given time and frees it after that; does nothing if the lock was taken over meanwhile
+    public void unlock(String name, String node, LocalDateTime lockedAt, LocalDateTime until) {
+        jdbcTemplate.update(RELEASE_SQL, Timestamp.valueOf(until), name, node, Timestamp.valueOf(lockedAt));
+    }
+}
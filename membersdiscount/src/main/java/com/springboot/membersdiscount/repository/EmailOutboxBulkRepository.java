@@ -0,0 +1,39 @@
+package com.springboot.membersdiscount.repository;
+
+import com.springboot.membersdiscount.model.EmailOutbox;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+//Batched inserts into the outbox, bypassing the persistence context like MemberBulkRepository
+@Repository
+@RequiredArgsConstructor
+public class EmailOutboxBulkRepository {
+
+    //The no-op update skips emails already recorded for the same campaign and member, unlike INSERT IGNORE it
+    //still fails on other errors such as a body longer than the column or a NULL in a NOT NULL column
+    private static final String INSERT_SQL = """
+            INSERT INTO email_outbox
+                (campaign, member_id, recipient, subject, body, status, attempts, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, 0, ?, ?)
+            ON DUPLICATE KEY UPDATE id = id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertNew(List<EmailOutbox> entries) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setString(1, entry.getCampaign());
+            ps.setLong(2, entry.getMemberId());
+            ps.setString(3, entry.getRecipient());
+            ps.setString(4, entry.getSubject());
+            ps.setString(5, entry.getBody());
+            ps.setString(6, entry.getStatus().name());
+            ps.setTimestamp(7, Timestamp.valueOf(entry.getCreatedAt()));
+            ps.setTimestamp(8, Timestamp.valueOf(entry.getUpdatedAt()));
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package com.springboot.membersdiscount.repository;
+
+import com.springboot.membersdiscount.model.EmailOutbox;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    //IDs of a keyset page of the campaign's emails a dispatch may claim: unsent ones tried fewer than maxAttempts
+    //times, and ones whose claim ran out. Served by idx_outbox_campaign_status
+    @Query("""
+            select o.id from EmailOutbox o where o.campaign = :campaign and o.id > :afterId and o.attempts < :maxAttempts
+                and (o.status in :unsent or (o.status = :sending and o.leaseUntil < :now)) order by o.id
+            """)
+    List<Long> findClaimableIds(String campaign, Collection<EmailOutbox.Status> unsent, EmailOutbox.Status sending,
+                                int maxAttempts, LocalDateTime now, Long afterId, Limit limit);
+
+    //Claims the emails for one dispatch. The conditions are checked again on every locked row, so an email another
+    //dispatch claimed in the meantime is left to it and no two dispatches send the same email.
+    @Transactional
+    @Modifying
+    @Query("""
+            update EmailOutbox o set o.status = :sending, o.owner = :owner, o.leaseUntil = :leaseUntil, o.updatedAt = :now
+            where o.id in :ids and o.attempts < :maxAttempts
+                and (o.status in :unsent or (o.status = :sending and o.leaseUntil < :now))
+            """)
+    int claim(Collection<Long> ids, Collection<EmailOutbox.Status> unsent, EmailOutbox.Status sending, int maxAttempts,
+              String owner, LocalDateTime leaseUntil, LocalDateTime now);
+
+    List<EmailOutbox> findByOwnerAndStatusAndIdInOrderByIdAsc(String owner, EmailOutbox.Status status, Collection<Long> ids);
+
+    //Campaigns with emails nobody is sending: pending ones, and claimed ones whose dispatch died
+    @Query("""
+            select distinct o.campaign from EmailOutbox o
+            where o.status = :pending or (o.status = :sending and o.leaseUntil < :now)
+            """)
+    List<String> findCampaignsToResume(EmailOutbox.Status pending, EmailOutbox.Status sending, LocalDateTime now);
+
+    //Extends the claim on the emails a worker is about to send. Emails that another dispatch has claimed since are
+    //not owned any more and are not renewed.
+    @Transactional
+    @Modifying
+    @Query("""
+            update EmailOutbox o set o.leaseUntil = :leaseUntil, o.updatedAt = :now
+            where o.id in :ids and o.owner = :owner and o.status = :sending
+            """)
+    int renewLease(Collection<Long> ids, String owner, EmailOutbox.Status sending, LocalDateTime leaseUntil,
+                   LocalDateTime now);
+
+    //Records the outcome of the owner's attempt; rows claimed by another dispatch since are left to it
+    @Transactional
+    @Modifying
+    @Query("""
+            update EmailOutbox o set o.status = :status, o.attempts = o.attempts + 1,
+                o.lastError = :error, o.updatedAt = :now where o.id in :ids and o.owner = :owner
+            """)
+    int updateStatus(Collection<Long> ids, String owner, EmailOutbox.Status status, String error, LocalDateTime now);
+}
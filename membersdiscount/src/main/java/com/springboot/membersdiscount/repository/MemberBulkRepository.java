@@ -0,0 +1,145 @@
+package com.springboot.membersdiscount.repository;
+
+import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.model.MemberFingerprint;
+import com.springboot.membersdiscount.model.UpsertResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+//Set-based writes for the ingestion job, bypassing the persistence context so rows can be batched
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class MemberBulkRepository {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO members (id, name, email, location, price, member_since, has_paid, deadline, fingerprint)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE name = VALUES(name), email = VALUES(email), location = VALUES(location),
+                price = VALUES(price), member_since = VALUES(member_since), has_paid = VALUES(has_paid),
+                deadline = VALUES(deadline), fingerprint = VALUES(fingerprint)
+            """;
+
+    private static final String STORED_SQL = "SELECT id, fingerprint, has_paid, deadline FROM members WHERE id IN (:ids)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    //What upsert compares an incoming member with; the fingerprint is null for rows written before fingerprints
+    //existed or marked as paid since
+    private record StoredMember(Long fingerprint, boolean hasPaid, LocalDate deadline) {
+    }
+
+    //Returns the stored state of each of the given IDs that already exists, in a single query
+    private Map<Long, StoredMember> findStored(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, StoredMember> stored = new HashMap<>();
+        namedParameterJdbcTemplate.query(STORED_SQL, Map.of("ids", ids), rs -> {
+            long fingerprint = rs.getLong(2);
+            Long storedFingerprint = rs.wasNull() ? null : fingerprint;
+            stored.put(rs.getLong(1), new StoredMember(storedFingerprint, rs.getBoolean(3),
+                    rs.getObject(4, LocalDate.class)));
+        });
+        return stored;
+    }
+
+    //Inserts new members and updates existing ones as one batched statement. Members whose fingerprint matches the
+    //stored row are not written at all. A member marked as paid here stays paid while the incoming row still has the
+    //same deadline unpaid, as the feed may not know about the payment yet; a new deadline starts a new period.
+    //If the batch fails, the chunk is retried row by row so one bad member only fails itself.
+    //Lock timeouts and deadlocks are not a bad member: the transaction is rolled back and they are rethrown for the
+    //caller to retry the whole chunk.
+    @Transactional
+    public UpsertResult upsert(List<Member> members) {
+        if (members.isEmpty()) {
+            return UpsertResult.EMPTY;
+        }
+        members.forEach(member -> member.setFingerprint(MemberFingerprint.of(member)));
+        Map<Long, StoredMember> stored = findStored(members.stream().map(Member::getId).filter(Objects::nonNull).toList());
+        List<Member> changed = members.stream()
+                .filter(member -> member.getId() == null || !stored.containsKey(member.getId())
+                        || !member.getFingerprint().equals(stored.get(member.getId()).fingerprint()))
+                .toList();
+        // the fingerprint stays the feed's, so the next sync of the same row skips it instead of writing it again
+        changed.stream()
+                .filter(member -> member.getId() != null && keepsLocalPayment(member, stored.get(member.getId())))
+                .forEach(member -> member.setHasPaid(true));
+        int unchanged = members.size() - changed.size();
+        if (changed.isEmpty()) {
+            return new UpsertResult(0, 0, 0, unchanged);
+        }
+        Set<Long> existingIds = stored.keySet();
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, changed, changed.size(), this::bind);
+            int updated = (int) changed.stream().filter(m -> existingIds.contains(m.getId())).count();
+            return new UpsertResult(changed.size() - updated, updated, 0, unchanged);
+        } catch (TransientDataAccessException e) {
+            throw e;
+        } catch (DataAccessException e) {
+            log.warn("Batch upsert of {} members failed, retrying row by row: {}", changed.size(), e.getMessage());
+            return upsertRowByRow(changed, existingIds).plus(new UpsertResult(0, 0, 0, unchanged));
+        }
+    }
+
+    private static boolean keepsLocalPayment(Member incoming, StoredMember stored) {
+        return stored != null && stored.hasPaid() && !Boolean.TRUE.equals(incoming.getHasPaid())
+                && Objects.equals(stored.deadline(), incoming.getDeadline());
+    }
+
+    private UpsertResult upsertRowByRow(List<Member> members, Set<Long> existingIds) {
+        int inserted = 0;
+        int updated = 0;
+        int failed = 0;
+        for (Member member : members) {
+            try {
+                jdbcTemplate.update(UPSERT_SQL, ps -> bind(ps, member));
+                if (existingIds.contains(member.getId())) {
+                    updated++;
+                } else {
+                    inserted++;
+                }
+            } catch (TransientDataAccessException e) {
+                throw e;
+            } catch (DataAccessException e) {
+                failed++;
+                log.error("Failed to save member with ID {}: {}", member.getId(), e.getMessage());
+            }
+        }
+        return new UpsertResult(inserted, updated, failed);
+    }
+
+    private void bind(PreparedStatement ps, Member member) throws SQLException {
+        if (member.getId() == null) {
+            ps.setNull(1, Types.BIGINT); // lets the database generate the ID
+        } else {
+            ps.setLong(1, member.getId());
+        }
+        ps.setString(2, member.getName());
+        ps.setString(3, member.getEmail());
+        ps.setString(4, member.getLocation());
+        ps.setObject(5, member.getPrice(), Types.DOUBLE);
+        ps.setObject(6, member.getMemberSince(), Types.DATE);
+        ps.setBoolean(7, Boolean.TRUE.equals(member.getHasPaid()));
+        ps.setObject(8, member.getDeadline(), Types.DATE);
+        ps.setLong(9, member.getFingerprint());
+    }
+}
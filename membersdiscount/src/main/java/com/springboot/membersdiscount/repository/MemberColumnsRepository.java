@@ -0,0 +1,38 @@
+package com.springboot.membersdiscount.repository;
+
+import com.springboot.membersdiscount.analytics.MemberColumns;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+//Loads the fields the analytics aggregate over straight into a column store, row by row from a server-side cursor,
+//without building a Member entity per row
+@Repository
+@RequiredArgsConstructor
+public class MemberColumnsRepository {
+
+    private static final String COLUMNS_SQL = "SELECT id, location, price, member_since, has_paid FROM members ORDER BY id";
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MemberColumns load() {
+        var builder = MemberColumns.builder();
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement(COLUMNS_SQL);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            double price = rs.getDouble(3);
+            if (rs.wasNull()) {
+                price = Double.NaN;
+            }
+            LocalDate memberSince = rs.getObject(4, LocalDate.class);
+            builder.add(rs.getLong(1), rs.getString(2), price,
+                    memberSince == null ? MemberColumns.NO_DAY : (int) memberSince.toEpochDay(), rs.getBoolean(5));
+        });
+        return builder.build();
+    }
+}
@@ -1,13 +1,71 @@
 package com.springboot.membersdiscount.repository;
 
 import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.model.MemberPriceRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface MemberRepository extends JpaRepository<Member, Long> {
     List<Member> findByHasPaid(boolean hasPaid);
 
+    Page<Member> findByHasPaid(boolean hasPaid, Pageable pageable);
+
+    //Members who joined before the cutoff date, only paid ones when paidOnly, as read-only rows.
+    //Served by idx_members_paid_since when paidOnly is true.
+    @Query("""
+            select new com.springboot.membersdiscount.model.MemberPriceRow(
+                m.id, m.name, m.email, m.location, m.price, m.memberSince, m.hasPaid)
+            from Member m where (m.hasPaid = true or :paidOnly = false) and m.memberSince < :cutoff order by m.id""")
+    List<MemberPriceRow> findPricesJoinedBefore(LocalDate cutoff, boolean paidOnly);
+
+    //Every member, only paid ones when paidOnly, as read-only rows ordered by ID
+    @Query("""
+            select new com.springboot.membersdiscount.model.MemberPriceRow(
+                m.id, m.name, m.email, m.location, m.price, m.memberSince, m.hasPaid)
+            from Member m where (m.hasPaid = true or :paidOnly = false) order by m.id""")
+    List<MemberPriceRow> findPrices(boolean paidOnly);
+
+    //Members who joined within [from, to), only paid ones when paidOnly, as read-only rows
+    @Query("""
+            select new com.springboot.membersdiscount.model.MemberPriceRow(
+                m.id, m.name, m.email, m.location, m.price, m.memberSince, m.hasPaid)
+            from Member m where (m.hasPaid = true or :paidOnly = false) and m.memberSince >= :from and m.memberSince < :to""")
+    List<MemberPriceRow> findPricesJoinedBetween(LocalDate from, LocalDate to, boolean paidOnly);
+
+    //Unpaid members whose deadline falls within [from, to], served by idx_members_paid_deadline
+    List<Member> findByHasPaidFalseAndDeadlineBetween(LocalDate from, LocalDate to);
+
+    //Keyset page: the next members after the given ID, so deep scans never pay for an OFFSET
+    List<Member> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    //Streams all members from a server-side cursor, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select m from Member m order by m.id")
+    Stream<Member> streamAllBy();
+
+    List<Member> findByHasPaidFalseAndIdIn(Collection<Long> ids);
+
+    long countByIdIn(Collection<Long> ids);
+
+    //Marks the given members as paid with one set-based UPDATE. Rows that are already paid are not touched, so the
+    //same payment can be applied twice. The fingerprint is cleared because it no longer matches the row; the next sync
+    //rewrites the row but keeps the payment, see MemberBulkRepository.upsert.
+    @Modifying
+    @Query("update Member m set m.hasPaid = true, m.fingerprint = null where m.hasPaid = false and m.id in :ids")
+    int markPaid(Collection<Long> ids);
+
 }
@@ -0,0 +1,9 @@
+package com.springboot.membersdiscount.repository;
+
+import com.springboot.membersdiscount.model.SyncWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SyncWatermarkRepository extends JpaRepository<SyncWatermark, String> {
+}
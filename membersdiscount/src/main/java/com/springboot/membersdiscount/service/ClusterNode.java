@@ -0,0 +1,71 @@
+package com.springboot.membersdiscount.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.function.Function;
+
+//Identity of this instance in the cluster and the share of members it works on. With app.cluster.shard-count above 1
+//every node is given its own app.cluster.shard-index and only syncs and emails the members whose ID hashes into its
+//shard; each shard's jobs are locked separately, so N nodes split a run instead of running it N times.
+@Slf4j
+@Getter
+@Component
+public class ClusterNode {
+    private final String nodeId;
+    private final int shardCount;
+    private final int shardIndex;
+
+    public ClusterNode(@Value("${app.cluster.node-id:}") String nodeId,
+                       @Value("${app.cluster.shard-count:1}") int shardCount,
+                       @Value("${app.cluster.shard-index:0}") int shardIndex) {
+        if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("app.cluster.shard-index must be between 0 and shard-count - 1, got "
+                    + shardIndex + " of " + shardCount);
+        }
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.shardCount = shardCount;
+        this.shardIndex = shardIndex;
+        log.info("Cluster node {} works on shard {} of {}", this.nodeId, shardIndex, shardCount);
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    //Members without an ID are kept by every shard, the upsert rejects them anyway
+    public boolean owns(Long memberId) {
+        return !isSharded() || memberId == null || shardOf(memberId, shardCount) == shardIndex;
+    }
+
+    public <T> List<T> ownedOnly(List<T> items, Function<T, Long> id) {
+        return isSharded() ? items.stream().filter(item -> owns(id.apply(item))).toList() : items;
+    }
+
+    //Names a lock or campaign per shard, unchanged when the cluster is not sharded
+    public String perShard(String name) {
+        return isSharded() ? name + "#" + shardIndex + "/" + shardCount : name;
+    }
+
+    //Sequential IDs are mixed first so every shard gets an even share of any ID range
+    public static int shardOf(long memberId, int shardCount) {
+        long h = memberId * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) Math.floorMod(h, (long) shardCount);
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + ":" + ProcessHandle.current().pid();
+    }
+}
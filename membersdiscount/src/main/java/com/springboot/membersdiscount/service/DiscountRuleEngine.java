@@ -0,0 +1,104 @@
+package com.springboot.membersdiscount.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.membersdiscount.exception.InvalidDiscountRulesException;
+import com.springboot.membersdiscount.model.DiscountRule;
+import com.springboot.membersdiscount.model.DiscountRulesReloadedEvent;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.List;
+
+//Holds the compiled discount rules loaded from app.discount.rules-location (a classpath: or file: resource).
+//The file is checked for changes every app.discount.reload-interval-ms and can be reloaded on demand; a file that
+//does not parse or validate leaves the current rules in place.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DiscountRuleEngine {
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.discount.rules-location:classpath:discount-rules.json}")
+    private String rulesLocation;
+
+    private volatile DiscountRules rules;
+    private volatile DiscountRules.Evaluator evaluator;
+    private long lastModified;
+
+    //Invalid rules at startup fail the application instead of running without discounts
+    @PostConstruct
+    public void load() {
+        reload();
+    }
+
+    public DiscountRules rules() {
+        return rules;
+    }
+
+    //Evaluator for today, reused until the date or the rules change
+    public DiscountRules.Evaluator evaluator() {
+        LocalDate today = LocalDate.now();
+        DiscountRules.Evaluator current = evaluator;
+        if (current == null || !current.today().equals(today)) {
+            current = rules.evaluator(today);
+            evaluator = current;
+        }
+        return current;
+    }
+
+    public synchronized DiscountRules reload() {
+        Resource resource = resourceLoader.getResource(rulesLocation);
+        long modified = lastModified(resource);
+        DiscountRules compiled;
+        try (InputStream in = resource.getInputStream()) {
+            compiled = DiscountRules.compile(objectMapper.readValue(in, new TypeReference<List<DiscountRule>>() {
+            }));
+        } catch (IOException e) {
+            throw new InvalidDiscountRulesException("Cannot read discount rules from " + rulesLocation + ": " + e.getMessage(), e);
+        }
+        DiscountRules previous = rules;
+        rules = compiled;
+        evaluator = null;
+        lastModified = modified;
+        log.info("Loaded {} discount rules from {}", compiled.definitions().size(), rulesLocation);
+        if (previous != null) {
+            eventPublisher.publishEvent(new DiscountRulesReloadedEvent(compiled.definitions().size()));
+        }
+        return compiled;
+    }
+
+    @Scheduled(fixedDelayString = "${app.discount.reload-interval-ms:30000}")
+    public synchronized void reloadIfModified() {
+        long modified = lastModified(resourceLoader.getResource(rulesLocation));
+        if (modified == lastModified) {
+            return;
+        }
+        try {
+            reload();
+        } catch (InvalidDiscountRulesException e) {
+            log.error("Keeping the current discount rules: {}", e.getMessage());
+            lastModified = modified; // report a broken file once, not on every poll
+        }
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.springboot.membersdiscount.service;
+
+import com.springboot.membersdiscount.exception.InvalidDiscountRulesException;
+import com.springboot.membersdiscount.model.DiscountRule;
+import com.springboot.membersdiscount.model.DiscountedMember;
+import com.springboot.membersdiscount.model.MemberPriceRow;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+//Discount rules compiled once into flat arrays, so evaluating a member is a loop over primitives with no lookups
+//or allocations besides the result. The first matching rule wins.
+public final class DiscountRules {
+    private final List<DiscountRule> definitions;
+    private final int[] minTenureYears;
+    private final boolean[] requirePaid;
+    private final Set<String>[] locations;
+    private final double[] minPrice;
+    private final double[] maxPrice;
+    private final double[] percent;
+    private final boolean paidOnly;
+    private final int candidateTenureYears;
+
+    @SuppressWarnings("unchecked")
+    private DiscountRules(List<DiscountRule> definitions) {
+        int size = definitions.size();
+        this.definitions = List.copyOf(definitions);
+        this.minTenureYears = new int[size];
+        this.requirePaid = new boolean[size];
+        this.locations = new Set[size];
+        this.minPrice = new double[size];
+        this.maxPrice = new double[size];
+        this.percent = new double[size];
+        boolean allPaid = true;
+        int smallestTenure = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            DiscountRule rule = definitions.get(i);
+            minTenureYears[i] = rule.minTenureYears() == null ? 0 : rule.minTenureYears();
+            requirePaid[i] = rule.requirePaid() == null || rule.requirePaid();
+            if (rule.locations() != null && !rule.locations().isEmpty()) {
+                Set<String> normalized = new HashSet<>();
+                rule.locations().forEach(location -> normalized.add(location.trim().toLowerCase(Locale.ROOT)));
+                locations[i] = normalized;
+            }
+            minPrice[i] = rule.minPrice() == null ? Double.NEGATIVE_INFINITY : rule.minPrice();
+            maxPrice[i] = rule.maxPrice() == null ? Double.POSITIVE_INFINITY : rule.maxPrice();
+            percent[i] = rule.percent();
+            allPaid &= requirePaid[i];
+            smallestTenure = Math.min(smallestTenure, minTenureYears[i]);
+        }
+        this.paidOnly = allPaid;
+        this.candidateTenureYears = size == 0 ? 0 : smallestTenure;
+    }
+
+    //Validates the definitions and compiles them
+    public static DiscountRules compile(List<DiscountRule> definitions) {
+        if (definitions == null) {
+            throw new InvalidDiscountRulesException("Discount rules must be a JSON array");
+        }
+        Set<String> names = new HashSet<>();
+        for (DiscountRule rule : definitions) {
+            if (rule == null || rule.name() == null || rule.name().isBlank()) {
+                throw new InvalidDiscountRulesException("Every discount rule needs a name");
+            }
+            if (!names.add(rule.name())) {
+                throw new InvalidDiscountRulesException("Duplicate discount rule " + rule.name());
+            }
+            if (!(rule.percent() > 0 && rule.percent() <= 100)) {
+                throw new InvalidDiscountRulesException("Rule " + rule.name() + ": percent must be in (0, 100]");
+            }
+            if (rule.minTenureYears() != null && rule.minTenureYears() < 0) {
+                throw new InvalidDiscountRulesException("Rule " + rule.name() + ": minTenureYears must not be negative");
+            }
+            if (rule.minPrice() != null && rule.maxPrice() != null && rule.minPrice() >= rule.maxPrice()) {
+                throw new InvalidDiscountRulesException("Rule " + rule.name() + ": minPrice must be below maxPrice");
+            }
+        }
+        return new DiscountRules(definitions);
+    }
+
+    public List<DiscountRule> definitions() {
+        return definitions;
+    }
+
+    //Discount percent of the rule at the index match returns
+    public double percent(int rule) {
+        return percent[rule];
+    }
+
+    //True when no rule discounts unpaid members
+    public boolean paidOnly() {
+        return paidOnly;
+    }
+
+    //Members with this tenure or less never match any rule
+    public int candidateTenureYears() {
+        return candidateTenureYears;
+    }
+
+    //Resolves the tenure conditions against one day; an evaluator is immutable and safe to share between threads
+    public Evaluator evaluator(LocalDate today) {
+        return new Evaluator(today);
+    }
+
+    public final class Evaluator {
+        private final LocalDate today;
+        private final long[] joinedBefore;
+
+        private Evaluator(LocalDate today) {
+            this.today = today;
+            this.joinedBefore = new long[minTenureYears.length];
+            for (int i = 0; i < joinedBefore.length; i++) {
+                joinedBefore[i] = today.minusYears(minTenureYears[i]).toEpochDay();
+            }
+        }
+
+        public LocalDate today() {
+            return today;
+        }
+
+        //Index of the first rule the member matches, or -1. A missing memberSince only matches rules without tenure.
+        public int match(boolean paid, long memberSinceEpochDay, boolean hasMemberSince, String location, double price) {
+            String normalizedLocation = null;
+            for (int i = 0; i < percent.length; i++) {
+                if (requirePaid[i] && !paid) {
+                    continue;
+                }
+                if (minTenureYears[i] > 0 && !(hasMemberSince && memberSinceEpochDay < joinedBefore[i])) {
+                    continue;
+                }
+                if (!(price >= minPrice[i] && price < maxPrice[i])) {
+                    continue;
+                }
+                if (locations[i] != null) {
+                    if (location == null) {
+                        continue;
+                    }
+                    if (normalizedLocation == null) {
+                        normalizedLocation = location.trim().toLowerCase(Locale.ROOT);
+                    }
+                    if (!locations[i].contains(normalizedLocation)) {
+                        continue;
+                    }
+                }
+                return i;
+            }
+            return -1;
+        }
+
+        //The member with its discounted price, or null when no rule applies or the member has no price
+        public DiscountedMember apply(MemberPriceRow row) {
+            if (row.price() == null) {
+                return null;
+            }
+            double price = row.price();
+            int rule = match(Boolean.TRUE.equals(row.hasPaid()),
+                    row.memberSince() == null ? 0 : row.memberSince().toEpochDay(), row.memberSince() != null,
+                    row.location(), price);
+            if (rule < 0) {
+                return null;
+            }
+            return new DiscountedMember(row.id(), row.name(), row.email(), row.location(), price,
+                    price - price * percent[rule] / 100, percent[rule]);
+        }
+    }
+}
@@ -1,19 +1,64 @@
 package com.springboot.membersdiscount.service;
 
+import com.springboot.membersdiscount.config.AppMetrics;
+import com.springboot.membersdiscount.email.EmailTemplates;
+import com.springboot.membersdiscount.exception.ExportIncompleteException;
 import com.springboot.membersdiscount.exception.MembersNotFoundException;
+import com.springboot.membersdiscount.model.BackgroundJob;
+import com.springboot.membersdiscount.model.EmailDispatchJob;
+import com.springboot.membersdiscount.model.DiscountedMember;
+import com.springboot.membersdiscount.model.EmailOutbox;
+import com.springboot.membersdiscount.model.MarkPaidResult;
 import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.model.MemberPriceRow;
+import com.springboot.membersdiscount.model.MemberSlice;
+import com.springboot.membersdiscount.model.MembersChangedEvent;
+import com.springboot.membersdiscount.model.SyncWatermark;
+import com.springboot.membersdiscount.model.UpsertResult;
+import com.springboot.membersdiscount.repository.MemberBulkRepository;
 import com.springboot.membersdiscount.repository.MemberRepository;
+import com.springboot.membersdiscount.repository.SyncWatermarkRepository;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.net.URI;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static com.springboot.membersdiscount.email.EmailTemplet.*;
 
@@ -21,10 +66,49 @@ import static com.springboot.membersdiscount.email.EmailTemplet.*;
 @RequiredArgsConstructor
 @Service
 public class DiscountService {
+    private static final String MEMBERS_SOURCE = "members-api";
+    private static final String REMINDERS_SOURCE = "reminders";
+    public static final String JOB_FETCH_MEMBERS = "fetchAndSaveAllMembers";
+    public static final String JOB_FETCH_CHANGES = "fetchChangedMembers";
+    public static final String JOB_REMINDERS = "sendReminders";
+    public static final String JOB_DISCOUNT_EMAILS = "sendDiscountToMembers";
+    public static final String MEMBERS_CACHE = "members";
+    public static final String PAID_MEMBERS_CACHE = "paidMembers";
+    public static final String UNPAID_MEMBERS_CACHE = "unpaidMembers";
+
+    private static final Map<String, Comparator<DiscountedMember>> ELIGIBLE_SORT_KEYS = Map.of(
+            "id", Comparator.comparing(DiscountedMember::id, Comparator.nullsLast(Comparator.naturalOrder())),
+            "name", Comparator.comparing(DiscountedMember::name, Comparator.nullsLast(Comparator.naturalOrder())),
+            "email", Comparator.comparing(DiscountedMember::email, Comparator.nullsLast(Comparator.naturalOrder())),
+            "location", Comparator.comparing(DiscountedMember::location, Comparator.nullsLast(Comparator.naturalOrder())),
+            "originalPrice", Comparator.comparing(DiscountedMember::originalPrice, Comparator.nullsLast(Comparator.naturalOrder())),
+            "price", Comparator.comparing(DiscountedMember::discountedPrice, Comparator.nullsLast(Comparator.naturalOrder())),
+            "discountPercent", Comparator.comparingDouble(DiscountedMember::discountPercent));
+    private static final int MAX_ELIGIBLE_VIEWS = 16;
+
     private final RestTemplate restTemplate;
     private final MemberRepository memberRepository;
-    private final EmailService emailService;
+    private final MemberBulkRepository memberBulkRepository;
+    private final EmailOutboxService emailOutboxService;
+    private final EmailTemplates emailTemplates;
+    private final MemberFeedReader memberFeedReader;
+    private final EntityManager entityManager;
+    private final AppMetrics appMetrics;
+    private final MemberExporter memberExporter;
+    private final SyncWatermarkRepository syncWatermarkRepository;
+    private final EligibilitySnapshot eligibilitySnapshot;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DiscountRuleEngine discountRuleEngine;
+    private final MemberIngestor memberIngestor;
+    private final JobService jobService;
+    private final ClusterNode clusterNode;
+
+    //Eligible members evaluated and sorted once per sort order, reused by every page until the snapshot, the rules
+    //or the day change
+    private record EligibleView(long version, DiscountRules rules, LocalDate day, List<DiscountedMember> members) {
+    }
 
+    private final Map<Sort, EligibleView> eligibleViews = new ConcurrentHashMap<>();
 
     @Value("${external.api.get.url}")
     private String externalApiGetUrl;
@@ -32,58 +116,327 @@ public class DiscountService {
     @Value("${external.api.post.url}")
     private String externalApiPostUrl;
 
+    @Value("${app.ingestion.streaming:true}")
+    private boolean streamingIngestion;
+
+    @Value("${app.ingestion.chunk-size:1000}")
+    private int ingestionChunkSize;
+
+    @Value("${app.export.chunked:true}")
+    private boolean chunkedExport;
+
+    @Value("${app.discount.parallel-threshold:20000}")
+    private int parallelThreshold;
+
+    @Value("${app.sync.delta-param:}")
+    private String deltaParam;
+
+    @Value("${app.sync.delta-overlap:5m}")
+    private Duration deltaOverlap;
+
+    @Value("${app.reminders.days-ahead:3}")
+    private int reminderDaysAhead;
+
+    //How far back deadlines that passed while no reminder run happened are still reminded about
+    @Value("${app.reminders.max-catch-up-days:7}")
+    private int maxCatchUpDays;
+
+    @Value("${app.reminders.catch-up-on-startup:true}")
+    private boolean catchUpRemindersOnStartup;
+
+    private record FeedResult(boolean notModified, MemberFeedReader.ReadResult read, String etag) {
+        static final FeedResult NOT_MODIFIED = new FeedResult(true, new MemberFeedReader.ReadResult(0, 0), null);
+    }
+
 
     //Scheduled to fetch members from external API on 25th of every month at 3 AM & saves to DB
     @Scheduled(cron = "0 0 3 25 * ?")
     public void fetchAndSaveAllMembers() {
+        jobService.runScheduled(JOB_FETCH_MEMBERS, this::fetchAndSaveAllMembers);
+    }
+
+    //Starts a full sync in the background, fails with a conflict while one is running
+    public BackgroundJob startFetchAndSaveAllMembers() {
+        return jobService.submit(JOB_FETCH_MEMBERS, this::fetchAndSaveAllMembers);
+    }
+
+    public UpsertResult fetchAndSaveAllMembers(BackgroundJob job) {
+        return appMetrics.timeJob("fetchAndSaveAllMembers", () -> fetchAndSaveAllMembersTimed(job));
+    }
+
+    private UpsertResult fetchAndSaveAllMembersTimed(BackgroundJob job) {
         log.info("Fetching and saving all members from external API...");
+        LocalDateTime startedAt = LocalDateTime.now();
+        if (streamingIngestion) {
+            var totals = fetchAndSaveAllMembersStreaming(job);
+            if (totals.processed() > 0) {
+                recordSync(startedAt, totals);
+            }
+            return totals;
+        }
 
         Member[] members = null;
         try {
             members = restTemplate.getForObject(externalApiGetUrl, Member[].class);
         } catch (RestClientException e) {
-            log.error("Failed to fetch members from external API", e);
-            return; // stop further execution, but don’t crash the scheduler
+            throw new IllegalStateException("Failed to fetch members from external API: " + e.getMessage(), e);
         }
 
         if (members == null || members.length == 0) {
             log.warn("No members found from external API");
-            return;
+            return UpsertResult.EMPTY;
         }
 
-        for (Member member : members) {
-            try {
-                updateOrSaveMember(member);
-            } catch (Exception e) {
-                log.error("Failed to save member with ID {}: {}", member.getId(), e.getMessage(), e);
-            }
+        var owned = clusterNode.ownedOnly(Arrays.asList(members), Member::getId);
+        job.setTotal(owned.size());
+        var run = startIngestion(job);
+        for (int from = 0; from < owned.size(); from += ingestionChunkSize) {
+            run.submit(owned.subList(from, Math.min(from + ingestionChunkSize, owned.size())));
         }
+        var totals = run.await();
+
+        log.info("Finished fetching and saving members. Total processed: {} (inserted: {}, updated: {}, unchanged: {}, failed: {})",
+                members.length, totals.inserted(), totals.updated(), totals.unchanged(), totals.failed());
+        recordSync(startedAt, totals);
+        return totals;
+    }
 
-        log.info("Finished fetching and saving members. Total processed: {}", members.length);
+    //Parses the external API response incrementally and saves the chunks in parallel while the rest is still being
+    //read; only the chunks in flight are held in memory, so the size of the feed does not matter
+    private UpsertResult fetchAndSaveAllMembersStreaming(BackgroundJob job) {
+        var run = startIngestion(job);
+        MemberFeedReader.ReadResult feed;
+        try {
+            feed = restTemplate.execute(externalApiGetUrl, HttpMethod.GET,
+                    request -> request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON)),
+                    response -> memberFeedReader.read(response.getBody(), ingestionChunkSize, run::submit));
+        } catch (RestClientException e) {
+            run.await(); // the chunks read before the failure are still saved
+            throw new IllegalStateException("Failed to fetch members from external API: " + e.getMessage(), e);
+        }
+        if (feed == null || feed.members() + feed.failed() == 0) {
+            run.await();
+            log.warn("No members found from external API");
+            return UpsertResult.EMPTY;
+        }
+        var totals = run.await().plus(feedFailures(job, feed));
+        log.info("Finished fetching and saving members. Total processed: {} (inserted: {}, updated: {}, unchanged: {}, failed: {})",
+                totals.processed(), totals.inserted(), totals.updated(), totals.unchanged(), totals.failed());
+        return totals;
     }
 
+    //Incremental sync, disabled unless app.sync.incremental-cron is set (e.g. hourly "0 0 * * * ?").
+    //Sends the stored ETag so an unchanged feed costs one 304, asks only for members changed since the last sync when
+    //the upstream supports a delta parameter (app.sync.delta-param), and skips unchanged rows by their fingerprint.
+    @Scheduled(cron = "${app.sync.incremental-cron:-}")
+    public void fetchChangedMembers() {
+        jobService.runScheduled(JOB_FETCH_CHANGES, this::fetchChangedMembers);
+    }
 
-    //Getting all members from DB
+    //Starts an incremental sync in the background, fails with a conflict while one is running
+    public BackgroundJob startFetchChangedMembers() {
+        return jobService.submit(JOB_FETCH_CHANGES, this::fetchChangedMembers);
+    }
+
+    public UpsertResult fetchChangedMembers(BackgroundJob job) {
+        return appMetrics.timeJob("fetchChangedMembers", () -> fetchChangedMembersTimed(job));
+    }
+
+    private UpsertResult fetchChangedMembersTimed(BackgroundJob job) {
+        var source = clusterNode.perShard(MEMBERS_SOURCE);
+        var watermark = syncWatermarkRepository.findById(source).orElseGet(() -> new SyncWatermark(source));
+        LocalDateTime startedAt = LocalDateTime.now();
+        URI uri = changedMembersUri(watermark);
+        log.info("Fetching changed members from {}", uri);
+        var run = startIngestion(job);
+        FeedResult feed;
+        try {
+            feed = restTemplate.execute(uri, HttpMethod.GET,
+                    request -> {
+                        request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON));
+                        if (watermark.getEtag() != null) {
+                            request.getHeaders().setIfNoneMatch(watermark.getEtag());
+                        }
+                    },
+                    response -> {
+                        if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                            return FeedResult.NOT_MODIFIED;
+                        }
+                        var read = memberFeedReader.read(response.getBody(), ingestionChunkSize, run::submit);
+                        return new FeedResult(false, read, response.getHeaders().getETag());
+                    });
+        } catch (RestClientException e) {
+            run.await(); // the chunks read before the failure are still saved
+            throw new IllegalStateException("Failed to fetch changed members from external API: " + e.getMessage(), e);
+        }
+        var totals = run.await().plus(feedFailures(job, feed.read()));
+
+        watermark.setLastCheckedAt(startedAt);
+        if (feed.notModified()) {
+            log.info("Members unchanged since the last sync at {}", watermark.getLastSyncAt());
+            syncWatermarkRepository.save(watermark);
+            return totals;
+        }
+        if (totals.failed() > 0) {
+            // the failed members are only fetched again if the next delta starts where this one did
+            log.warn("Keeping the sync watermark at {} because {} members failed", watermark.getLastSyncAt(), totals.failed());
+        } else {
+            watermark.setLastSyncAt(startedAt);
+            watermark.setEtag(feed.etag());
+        }
+        syncWatermarkRepository.save(watermark);
+        log.info("Finished incremental sync. Total received: {} (inserted: {}, updated: {}, unchanged: {}, failed: {})",
+                totals.processed(), totals.inserted(), totals.updated(), totals.unchanged(), totals.failed());
+        return totals;
+    }
+
+    //The delta goes back a little before the last sync, so clock skew with the upstream cannot lose a change;
+    //members seen twice are skipped by their fingerprint
+    private URI changedMembersUri(SyncWatermark watermark) {
+        var uri = UriComponentsBuilder.fromUriString(externalApiGetUrl);
+        if (deltaParam.isBlank() || watermark.getLastSyncAt() == null) {
+            return uri.build().toUri();
+        }
+        var since = watermark.getLastSyncAt().minus(deltaOverlap).atZone(ZoneId.systemDefault()).toOffsetDateTime();
+        return uri.queryParam(deltaParam, "{since}").encode().buildAndExpand(since.toString()).toUri();
+    }
+
+    //A full sync moves the watermark too; the stored ETag stays valid as it still names the last feed version seen.
+    //Each shard keeps its own watermark, as the nodes sync at different times. A sync in which members failed leaves
+    //it where it was, so the next incremental sync fetches those members again.
+    private void recordSync(LocalDateTime startedAt, UpsertResult totals) {
+        if (totals.failed() > 0) {
+            log.warn("Keeping the sync watermark because {} members failed", totals.failed());
+            return;
+        }
+        var source = clusterNode.perShard(MEMBERS_SOURCE);
+        var watermark = syncWatermarkRepository.findById(source).orElseGet(() -> new SyncWatermark(source));
+        watermark.setLastSyncAt(startedAt);
+        watermark.setLastCheckedAt(startedAt);
+        syncWatermarkRepository.save(watermark);
+    }
+
+    //Feed elements that were not a valid member count as failed rows of the sync
+    private static UpsertResult feedFailures(BackgroundJob job, MemberFeedReader.ReadResult feed) {
+        job.recordProgress(feed.failed(), feed.failed());
+        return new UpsertResult(0, 0, (int) feed.failed());
+    }
+
+    //Saves the chunks in parallel and reports every written chunk to the job's progress
+    private MemberIngestor.Run startIngestion(BackgroundJob job) {
+        return memberIngestor.start(this::saveChunk, result -> job.recordProgress(result.processed(), result.failed()));
+    }
+
+    //Saves one chunk of incoming members with a single batched upsert, a failing member does not stop the rest of the chunk.
+    //In a sharded cluster only the members of this node's shard are saved.
+    private UpsertResult saveChunk(List<Member> chunk) {
+        var members = clusterNode.ownedOnly(chunk, Member::getId);
+        if (members.isEmpty()) {
+            return UpsertResult.EMPTY;
+        }
+        var result = updateOrSaveMembers(members);
+        log.debug("Saved chunk of {} members (inserted: {}, updated: {}, unchanged: {}, failed: {})",
+                members.size(), result.inserted(), result.updated(), result.unchanged(), result.failed());
+        return result;
+    }
+
+
+    //Getting all members from DB, cached until the members change on any node or app.cache.ttl passes
+    @Cacheable(cacheNames = MEMBERS_CACHE, cacheResolver = "memberCacheResolver")
     public List<Member> fetchAllMembers() {
         var members = memberRepository.findAll();
         if (members.isEmpty()) {
             throw new MembersNotFoundException("No members found from external API");
         }
-        return members;
+        return List.copyOf(members);
     }
 
-    //Retrieves members eligible for a discount:
-    public List<Member>getEligibleDiscountedMembers(){
-        return fetchAllMembers().stream()
-                .filter(this::hasPaid)
-                .filter(this::memberMoreThan3Years)
-                .map(member -> {
-                    val discount = calculateDiscount(member);
-                    member.setPrice(member.getPrice() - discount);
-                    return member;
-                }).toList();
+    //Retrieves one page of members
+    public Page<Member> fetchMembersPage(Pageable pageable) {
+        return memberRepository.findAll(pageable);
+    }
+
+    //Retrieves up to limit members with an ID greater than afterId, ordered by ID
+    public MemberSlice fetchMembersAfter(long afterId, int limit) {
+        var members = memberRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit));
+        Long nextCursor = members.size() < limit ? null : members.get(members.size() - 1).getId();
+        return new MemberSlice(members, nextCursor);
     }
 
+    //Hands every member to the consumer one at a time, detaching each row so the persistence context stays empty
+    @Transactional(readOnly = true)
+    public void streamAllMembers(Consumer<Member> consumer) {
+        try (Stream<Member> members = memberRepository.streamAllBy()) {
+            members.forEach(member -> {
+                consumer.accept(member);
+                entityManager.detach(member);
+            });
+        }
+    }
+
+    //Retrieves the members a discount rule applies to with their discounted price, ordered by ID. Candidates come
+    //from the eligibility snapshot or, while it is not built yet, as read-only rows from the database; large candidate
+    //sets are evaluated in parallel.
+    public List<DiscountedMember>getEligibleDiscountedMembers(){
+        List<MemberPriceRow> rows;
+        if (eligibilitySnapshot.isReady()) {
+            rows = eligibilitySnapshot.members();
+        } else {
+            var rules = discountRuleEngine.rules();
+            rows = rules.candidateTenureYears() == 0 ? memberRepository.findPrices(rules.paidOnly())
+                    : memberRepository.findPricesJoinedBefore(LocalDate.now().minusYears(rules.candidateTenureYears()),
+                            rules.paidOnly());
+        }
+        var evaluator = discountRuleEngine.evaluator();
+        var stream = rows.size() >= parallelThreshold ? rows.parallelStream() : rows.stream();
+        return stream.map(evaluator::apply).filter(Objects::nonNull).toList();
+    }
+
+
+    //Retrieves one page of members eligible for a discount. Rules are not evaluated by the database, so the eligible
+    //members are evaluated and sorted once per sort order and every page is a slice of that list.
+    public Page<DiscountedMember> getEligibleDiscountedMembers(Pageable pageable) {
+        var eligible = sortedEligibleMembers(pageable.getSort());
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(eligible, pageable, eligible.size());
+        }
+        int from = (int) Math.min(pageable.getOffset(), eligible.size());
+        int to = Math.min(from + pageable.getPageSize(), eligible.size());
+        return new PageImpl<>(eligible.subList(from, to), pageable, eligible.size());
+    }
+
+    private List<DiscountedMember> sortedEligibleMembers(Sort sort) {
+        Comparator<DiscountedMember> order = null;
+        for (Sort.Order sortOrder : sort) {
+            var key = ELIGIBLE_SORT_KEYS.get(sortOrder.getProperty());
+            if (key == null) {
+                throw new IllegalArgumentException("Cannot sort eligible members by " + sortOrder.getProperty());
+            }
+            var comparator = sortOrder.isDescending() ? key.reversed() : key;
+            order = order == null ? comparator : order.thenComparing(comparator);
+        }
+        if (!eligibilitySnapshot.isReady()) {
+            return sortEligible(getEligibleDiscountedMembers(), order);
+        }
+        // read before the members, so a change while evaluating leaves the view outdated rather than wrongly current
+        long version = eligibilitySnapshot.version();
+        var rules = discountRuleEngine.rules();
+        LocalDate today = LocalDate.now();
+        var view = eligibleViews.get(sort);
+        if (view != null && view.version() == version && view.rules() == rules && view.day().equals(today)) {
+            return view.members();
+        }
+        var members = sortEligible(getEligibleDiscountedMembers(), order);
+        if (eligibleViews.size() >= MAX_ELIGIBLE_VIEWS) {
+            eligibleViews.clear();
+        }
+        eligibleViews.put(sort, new EligibleView(version, rules, today, members));
+        return members;
+    }
+
+    private static List<DiscountedMember> sortEligible(List<DiscountedMember> members, Comparator<DiscountedMember> order) {
+        return order == null ? members : members.stream().sorted(order).toList();
+    }
 
     //Checks if a member has paid their dues
     public boolean hasPaid(Member member) {
@@ -92,97 +445,214 @@ public class DiscountService {
 
     //Checks if a member has been registered for more than 3 years
     public boolean memberMoreThan3Years(Member member) {
-        try {
-            LocalDate memberSince = LocalDate.parse(member.getMemberSince());
-            return memberSince.isBefore(LocalDate.now().minusYears(3));
-        } catch (Exception e) {
-            log.warn("Failed to parse memberSince date for member ID {}: {}", member.getId(), member.getMemberSince());
-        }
-        return false;
+        return member.getMemberSince() != null && member.getMemberSince().isBefore(LocalDate.now().minusYears(3));
     }
 
-    //Calculates a 15% discount on the member's current price
+    //Calculates the discount the rules give the member on their current price, 0 when no rule applies
     public double calculateDiscount(Member member) {
-        return member == null || member.getPrice() == null ? 0.0 : member.getPrice() * 0.15;
+        if (member == null) {
+            return 0.0;
+        }
+        var discounted = discountRuleEngine.evaluator().apply(MemberPriceRow.of(member));
+        return discounted == null ? 0.0 : discounted.originalPrice() - discounted.discountedPrice();
     }
 
     //Retrieves all members who have not paid their dues
+    @Cacheable(cacheNames = UNPAID_MEMBERS_CACHE, cacheResolver = "memberCacheResolver")
     public List<Member> getMembersWhoHaveNotPaid(){
-        return memberRepository.findByHasPaid(false);
+        return List.copyOf(memberRepository.findByHasPaid(false));
     }
     //Retrieves all members who have paid their dues
+    @Cacheable(cacheNames = PAID_MEMBERS_CACHE, cacheResolver = "memberCacheResolver")
     public List<Member> getMembersWhoHavePaid(){
-        return memberRepository.findByHasPaid(true);
+        return List.copyOf(memberRepository.findByHasPaid(true));
+    }
+
+    //Retrieves one page of members with the given payment status
+    public Page<Member> getMembersByPaymentStatus(boolean hasPaid, Pageable pageable) {
+        return memberRepository.findByHasPaid(hasPaid, pageable);
     }
 
-    //Sends the eligible discounted members to an external API
-    public List<Member> sendDiscountedMembers(){
-        val discountedMembers = getEligibleDiscountedMembers();
-        log.info("Sending eligible members to external API...");
-        restTemplate.postForEntity(externalApiPostUrl, discountedMembers, Member[].class);
-        return discountedMembers;
+    //Sends the eligible discounted members to an external API, in parallel chunks unless app.export.chunked is false.
+    //Fails with the IDs that were not delivered when chunks are still rejected after the last attempt.
+    public List<DiscountedMember> sendDiscountedMembers(){
+        return appMetrics.timeJob("sendDiscountedMembers", () -> {
+            val discountedMembers = getEligibleDiscountedMembers();
+            log.info("Sending eligible members to external API...");
+            if (chunkedExport) {
+                var report = memberExporter.export(externalApiPostUrl, discountedMembers);
+                if (!report.complete()) {
+                    throw new ExportIncompleteException("Export incomplete: " + report.undelivered().size() + " of "
+                            + report.members() + " members in " + report.failedChunks() + " of " + report.chunks()
+                            + " chunks were not accepted after " + report.attempts() + " attempts",
+                            report.undelivered().stream().map(DiscountedMember::id).toList());
+                }
+            } else {
+                restTemplate.postForEntity(externalApiPostUrl, discountedMembers, Void.class);
+            }
+            return discountedMembers;
+        });
     }
 
     //Updates an existing member if found by ID, otherwise creates a new one.
     public void updateOrSaveMember(Member incomingMember) {
-        if (incomingMember.getHasPaid() == null) {
-            incomingMember.setHasPaid(false);
-        }
-        memberRepository.findById(incomingMember.getId())
-                .map(existingMember -> {
-                    existingMember.setName(incomingMember.getName());
-                    existingMember.setEmail(incomingMember.getEmail());
-                    existingMember.setLocation(incomingMember.getLocation());
-                    existingMember.setPrice(incomingMember.getPrice());
-                    existingMember.setHasPaid(incomingMember.getHasPaid());
-                    existingMember.setMemberSince(incomingMember.getMemberSince());
-                    existingMember.setDeadline(incomingMember.getDeadline());
-                    //exception
-                    return memberRepository.save(existingMember);
-                })
-                .orElseGet(() -> {
-                    log.warn("Member with ID {} not found. Creating new member.", incomingMember.getId());
-                    incomingMember.setId(null);
-                    return memberRepository.save(incomingMember);
-                });
+        updateOrSaveMembers(List.of(incomingMember));
+    }
 
+    //Upserts a whole chunk of members: existing IDs are loaded with one query and the chunk is written as one batch.
+    //Members keep their external ID, so running the same feed twice updates rows instead of duplicating them.
+    public UpsertResult updateOrSaveMembers(List<Member> incomingMembers) {
+        incomingMembers.forEach(member -> {
+            if (member.getHasPaid() == null) {
+                member.setHasPaid(false);
+            }
+        });
+        var result = memberBulkRepository.upsert(incomingMembers);
+        appMetrics.recordUpsert(result);
+        publishChanges(incomingMembers, result);
+        return result;
     }
 
-    //Finds members who have not paid and whose deadline is within the next 3 days.
+    //Marks the unpaid members among the given IDs as paid with one bulk UPDATE and reports how many changed, how many
+    //had already paid and how many IDs match no member, so repeated payment events are harmless. The changed members
+    //are published like any other write, which evicts the cached lists and updates the eligibility snapshot.
+    @Transactional
+    public MarkPaidResult markPaid(Collection<Long> memberIds) {
+        int found = (int) memberRepository.countByIdIn(memberIds);
+        var unpaid = memberRepository.findByHasPaidFalseAndIdIn(memberIds);
+        if (unpaid.isEmpty()) {
+            return new MarkPaidResult(0, found, memberIds.size() - found);
+        }
+        unpaid.forEach(entityManager::detach);
+        int marked = memberRepository.markPaid(unpaid.stream().map(Member::getId).toList());
+        unpaid.forEach(member -> {
+            member.setHasPaid(true);
+            member.setFingerprint(null);
+        });
+        eventPublisher.publishEvent(new MembersChangedEvent(unpaid));
+        return new MarkPaidResult(marked, found - marked, memberIds.size() - found);
+    }
+
+    //Tells listeners such as the eligibility snapshot which members were written. When some rows failed, the chunk
+    //is read back so listeners only see what was stored.
+    private void publishChanges(List<Member> members, UpsertResult result) {
+        if (result.inserted() + result.updated() == 0) {
+            return;
+        }
+        if (result.failed() > 0) {
+            members = memberRepository.findAllById(members.stream().map(Member::getId).filter(Objects::nonNull).toList());
+        }
+        eventPublisher.publishEvent(new MembersChangedEvent(members));
+    }
+
+    //Drops the cached member lists after every write, so reads after an ingestion run see the stored members.
+    //Inside a transaction the eviction waits for the commit, so a concurrent read cannot cache the old rows again.
+    @TransactionalEventListener(fallbackExecution = true)
+    @CacheEvict(cacheNames = {MEMBERS_CACHE, PAID_MEMBERS_CACHE, UNPAID_MEMBERS_CACHE}, allEntries = true)
+    public void onMembersChanged(MembersChangedEvent event) {
+        log.debug("Evicting cached member lists after {} members changed", event.members().size());
+    }
+
+    //Finds members who have not paid and whose deadline is within the next app.reminders.days-ahead days.
     public List<Member> getMembersWithUpcomingDeadline(){
         LocalDate today = LocalDate.now();
-        LocalDate threeDaysLater = today.plusDays(3);
-        return fetchAllMembers().stream()
-                .filter(m -> !hasPaid(m))
-                .filter(m -> m.getDeadline() != null)
-                .filter(m -> !m.getDeadline().isBefore(today))
-                .filter(m -> !m.getDeadline().isAfter(threeDaysLater)).toList();
-    }
-
-    //Sends email reminders to members whose deadline is within 3 days and who haven't paid
-    public void sendReminders(){
-        var reminder =getMembersWithUpcomingDeadline();
-        reminder.forEach(member -> {
-            String body = String.format(REMINDER_BODY,member.getName(),member.getDeadline());
-            emailService.sendEmail(member.getEmail(), REMINDER_SUBJECT, body);
-        });
+        return memberRepository.findByHasPaidFalseAndDeadlineBetween(today, today.plusDays(reminderDaysAhead));
     }
 
+    //Starts queuing the reminder emails in the background, fails with a conflict while that is running
+    public BackgroundJob startSendReminders() {
+        return jobService.submit(JOB_REMINDERS, this::sendReminders);
+    }
 
-    @Scheduled(cron = "0 0 9 * * ?")
+    //Queues email reminders to members whose deadline is within app.reminders.days-ahead days and who haven't paid.
+    //Reminders go out once per member per day, a rerun on the same day only sends the ones not sent yet.
+    //When days were missed, members whose deadline passed without any reminder are included as well; they get the
+    //overdue reminder instead of being asked to pay before a deadline that is already gone.
+    //The result is the email dispatch job that tracks the sending itself.
+    public EmailDispatchJob sendReminders(BackgroundJob job){
+        LocalDate today = LocalDate.now();
+        String campaign = clusterNode.perShard("reminders-" + today);
+        var watermark = syncWatermarkRepository.findById(clusterNode.perShard(REMINDERS_SOURCE))
+                .orElseGet(() -> new SyncWatermark(clusterNode.perShard(REMINDERS_SOURCE)));
+        LocalDate from = firstDeadlineToRemind(watermark, today);
+        var members = clusterNode.ownedOnly(
+                memberRepository.findByHasPaidFalseAndDeadlineBetween(from, today.plusDays(reminderDaysAhead)),
+                Member::getId);
+        job.setTotal(members.size());
+        var reminders = members.stream()
+                .map(member -> {
+                    String template = member.getDeadline().isBefore(today) ? OVERDUE_REMINDER : REMINDER;
+                    var email = emailTemplates.render(template, member.getLocation(), member.getName(), member.getDeadline());
+                    return EmailOutbox.pending(campaign, member.getId(), member.getEmail(), email.subject(), email.body());
+                })
+                .toList();
+        var dispatch = emailOutboxService.send(campaign, reminders);
+        job.recordProgress(reminders.size(), 0);
+        watermark.setLastSyncAt(today.atStartOfDay());
+        watermark.setLastCheckedAt(LocalDateTime.now());
+        syncWatermarkRepository.save(watermark);
+        return dispatch;
+    }
+
+    //A run on day L reminded every deadline up to L + days-ahead, so after a gap the deadlines between that and
+    //today never got a reminder. Those are picked up, as far back as app.reminders.max-catch-up-days.
+    private LocalDate firstDeadlineToRemind(SyncWatermark watermark, LocalDate today) {
+        if (watermark.getLastSyncAt() == null) {
+            return today;
+        }
+        LocalDate firstUncovered = watermark.getLastSyncAt().toLocalDate().plusDays(reminderDaysAhead + 1L);
+        if (!firstUncovered.isBefore(today)) {
+            return today;
+        }
+        LocalDate from = firstUncovered.isBefore(today.minusDays(maxCatchUpDays)) ? today.minusDays(maxCatchUpDays)
+                : firstUncovered;
+        log.info("Reminder runs were missed since {}, also reminding deadlines from {}",
+                watermark.getLastSyncAt().toLocalDate(), from);
+        return from;
+    }
+
+    @Scheduled(cron = "${app.reminders.cron:0 0 9 * * ?}")
     public void checkDeadlines() {
-        sendReminders();
+        jobService.runScheduled(JOB_REMINDERS, job -> appMetrics.timeDispatch("checkDeadlines", () -> sendReminders(job)));
     }
 
-    //Sends an email to all eligible members (paid & 3+ years) informing them of their discount.
-    public void sendDiscountToMembers(){
-        var eligibleMembers = getEligibleDiscountedMembers();
-        log.info("Sending Email to eligible members with 15% Discount...");
-        eligibleMembers.forEach(member -> {
-            double originalPrice = member.getPrice() / 0.85;
-            String body = String.format(DISCOUNT_BODY,member.getName(), originalPrice,member.getPrice());
-            emailService.sendEmail(member.getEmail(), DISCOUNT_SUBJECT, body);
-        });
+    //Runs the reminders right away when the application starts after a downtime in which deadlines went unreminded
+    @EventListener(ApplicationReadyEvent.class)
+    public void catchUpReminders() {
+        if (!catchUpRemindersOnStartup) {
+            return;
+        }
+        var lastRun = syncWatermarkRepository.findById(clusterNode.perShard(REMINDERS_SOURCE))
+                .map(SyncWatermark::getLastSyncAt);
+        if (lastRun.isPresent()
+                && lastRun.get().toLocalDate().plusDays(reminderDaysAhead + 1L).isBefore(LocalDate.now())) {
+            log.info("Reminders last ran on {}, catching up", lastRun.get().toLocalDate());
+            checkDeadlines();
+        }
+    }
+
+    //Starts queuing the discount emails in the background, fails with a conflict while that is running
+    public BackgroundJob startSendDiscountToMembers() {
+        return jobService.submit(JOB_DISCOUNT_EMAILS, this::sendDiscountToMembers);
+    }
+
+    //Queues an email to all members a discount rule applies to, informing them of their discount.
+    //The discount email goes out once per member per month, a rerun only sends the ones not sent yet.
+    public EmailDispatchJob sendDiscountToMembers(BackgroundJob job){
+        String campaign = clusterNode.perShard("discounts-" + YearMonth.now());
+        var eligibleMembers = clusterNode.ownedOnly(getEligibleDiscountedMembers(), DiscountedMember::id);
+        job.setTotal(eligibleMembers.size());
+        log.info("Sending discount emails to {} eligible members...", eligibleMembers.size());
+        var emails = eligibleMembers.stream()
+                .map(member -> {
+                    var email = emailTemplates.render(DISCOUNT, member.location(), member.name(),
+                            member.discountPercent(), member.originalPrice(), member.discountedPrice());
+                    return EmailOutbox.pending(campaign, member.id(), member.email(), email.subject(), email.body());
+                })
+                .toList();
+        var dispatch = emailOutboxService.send(campaign, emails);
+        job.recordProgress(emails.size(), 0);
+        return dispatch;
     }
 
 
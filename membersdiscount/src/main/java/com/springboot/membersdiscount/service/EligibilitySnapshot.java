@@ -0,0 +1,147 @@
+package com.springboot.membersdiscount.service;
+
+import com.springboot.membersdiscount.model.DiscountRulesReloadedEvent;
+import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.model.MemberPriceRow;
+import com.springboot.membersdiscount.model.MembersChangedEvent;
+import com.springboot.membersdiscount.repository.MemberRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+//In-memory rows of the members that can get a discount, ordered by ID: paid (when every rule requires it) and member
+//for longer than the shortest tenure any discount rule asks for. When a rule has no tenure condition every member is a
+//candidate, including those without a memberSince. The rules themselves are applied on read.
+//Built once at startup, kept current from MembersChangedEvent and moved forward by a daily tick that adds the members
+//whose anniversary has passed, so reads cost O(candidates) instead of a query over all members.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EligibilitySnapshot {
+    private final MemberRepository memberRepository;
+    private final DiscountRuleEngine discountRuleEngine;
+
+    private volatile ConcurrentSkipListMap<Long, MemberPriceRow> eligible;
+    private LocalDate cutoff;
+    private boolean paidOnly;
+    private int tenureYears;
+    private final AtomicLong version = new AtomicLong();
+    // held while querying the database, so it is a lock rather than a monitor that would pin a virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public boolean isReady() {
+        return eligible != null;
+    }
+
+    //Candidate members with their undiscounted price, ordered by ID
+    public List<MemberPriceRow> members() {
+        return List.copyOf(eligible.values());
+    }
+
+    //Changes whenever the candidates may have changed, so results derived from members() can be reused until then
+    public long version() {
+        return version.get();
+    }
+
+    //Changes are only published on the node that wrote them, so the periodic rebuild (app.eligibility.rebuild-cron)
+    //is how each node of a cluster picks up the members that other nodes synced or marked as paid
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.eligibility.rebuild-cron:0 */15 * * * ?}")
+    public void rebuild() {
+        lock.lock();
+        try {
+            var rules = discountRuleEngine.rules();
+            paidOnly = rules.paidOnly();
+            tenureYears = rules.candidateTenureYears();
+            LocalDate newCutoff = LocalDate.now().minusYears(tenureYears);
+            var snapshot = new ConcurrentSkipListMap<Long, MemberPriceRow>();
+            var rows = tenureYears == 0 ? memberRepository.findPrices(paidOnly)
+                    : memberRepository.findPricesJoinedBefore(newCutoff, paidOnly);
+            rows.forEach(row -> snapshot.put(row.id(), row));
+            cutoff = newCutoff;
+            eligible = snapshot;
+            version.incrementAndGet();
+            log.info("Eligibility snapshot built with {} members", snapshot.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //New rules may widen or narrow the candidates, the snapshot is only rebuilt when they do
+    @EventListener
+    public void onRulesReloaded(DiscountRulesReloadedEvent event) {
+        lock.lock();
+        try {
+            var rules = discountRuleEngine.rules();
+            if (eligible != null && (rules.paidOnly() != paidOnly || rules.candidateTenureYears() != tenureYears)) {
+                rebuild();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Applied once the write is committed, so a rolled back write never shows up in the snapshot
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMembersChanged(MembersChangedEvent event) {
+        lock.lock();
+        try {
+            if (eligible == null) {
+                return; // the initial build reads the changes from the database
+            }
+            for (Member member : event.members()) {
+                if (member.getId() == null) {
+                    continue;
+                }
+                if (isCandidate(member)) {
+                    eligible.put(member.getId(), MemberPriceRow.of(member));
+                } else {
+                    eligible.remove(member.getId());
+                }
+            }
+            version.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Adds the members whose anniversary passed since the last tick; without a tenure condition there are none to add
+    @Scheduled(cron = "${app.eligibility.tick-cron:0 5 0 * * ?}")
+    public void advance() {
+        lock.lock();
+        try {
+            if (eligible == null || tenureYears == 0) {
+                return;
+            }
+            LocalDate newCutoff = LocalDate.now().minusYears(tenureYears);
+            if (!newCutoff.isAfter(cutoff)) {
+                return;
+            }
+            var newlyEligible = memberRepository.findPricesJoinedBetween(cutoff, newCutoff, paidOnly);
+            newlyEligible.forEach(row -> eligible.put(row.id(), row));
+            cutoff = newCutoff;
+            version.incrementAndGet();
+            log.info("{} members crossed their {}-year anniversary, {} candidates for a discount", newlyEligible.size(),
+                    tenureYears, eligible.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isCandidate(Member member) {
+        if (paidOnly && !Boolean.TRUE.equals(member.getHasPaid())) {
+            return false;
+        }
+        return tenureYears == 0 || member.getMemberSince() != null && member.getMemberSince().isBefore(cutoff);
+    }
+}
@@ -0,0 +1,29 @@
+package com.springboot.membersdiscount.service;
+
+import com.springboot.membersdiscount.email.EmailMessage;
+
+import java.util.List;
+
+//Told by the dispatcher about the final outcome of each message, called from the dispatcher's worker threads.
+//Right before a worker sends messages the listener may withdraw the ones it no longer wants sent.
+public interface EmailDeliveryListener {
+
+    EmailDeliveryListener NONE = new EmailDeliveryListener() {
+        @Override
+        public void onSent(List<EmailMessage> messages) {
+        }
+
+        @Override
+        public void onFailed(EmailMessage message, String error) {
+        }
+    };
+
+    //Returns the messages that may still be sent; the others are dropped from the job as skipped
+    default List<EmailMessage> onSending(List<EmailMessage> messages) {
+        return messages;
+    }
+
+    void onSent(List<EmailMessage> messages);
+
+    void onFailed(EmailMessage message, String error);
+}
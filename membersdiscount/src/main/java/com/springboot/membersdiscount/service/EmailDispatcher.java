@@ -0,0 +1,253 @@
+package com.springboot.membersdiscount.service;
+
+import com.springboot.membersdiscount.config.TaskExecutors;
+import com.springboot.membersdiscount.email.EmailMessage;
+import com.springboot.membersdiscount.model.EmailDispatchJob;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+//Sends emails in the background: a bounded queue feeds a pool of workers that each send a batch of messages
+//over one SMTP session, throttled by a rate limiter and retried with exponential backoff.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EmailDispatcher {
+    private final EmailService emailService;
+    private final TaskExecutors taskExecutors;
+
+    @Value("${app.mail.dispatch.workers:4}")
+    private int workers;
+
+    @Value("${app.mail.dispatch.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.mail.dispatch.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.mail.dispatch.rate-per-second:20}")
+    private int ratePerSecond;
+
+    @Value("${app.mail.dispatch.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.mail.dispatch.backoff-ms:1000}")
+    private long backoffMillis;
+
+    private final Map<String, EmailDispatchJob> jobs = new ConcurrentHashMap<>();
+    private BlockingQueue<Delivery> queue;
+    private RateLimiter rateLimiter;
+    private ExecutorService workerPool;
+    private ExecutorService feeder;
+    private ScheduledExecutorService retryScheduler;
+
+    private record Delivery(EmailDispatchJob job, EmailDeliveryListener listener, EmailMessage message, int attempt) {
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        rateLimiter = new RateLimiter(ratePerSecond);
+        workerPool = taskExecutors.newBoundedExecutor("mail-dispatch-", workers);
+        feeder = taskExecutors.newBoundedExecutor("mail-feeder-", 1);
+        retryScheduler = taskExecutors.newScheduledExecutor("mail-retry-");
+        for (int i = 0; i < workers; i++) {
+            workerPool.execute(this::work);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        feeder.shutdownNow();
+        retryScheduler.shutdownNow();
+        workerPool.shutdownNow();
+    }
+
+    //Queues the messages for sending and returns immediately; progress is tracked on the returned job
+    public EmailDispatchJob submit(String type, List<EmailMessage> messages) {
+        return submit(type, List.of(messages).iterator(), EmailDeliveryListener.NONE);
+    }
+
+    //Queues the messages pulled batch by batch from the iterator, so only a few batches are in memory at once.
+    //The listener is told the final outcome of every message. If the iterator fails, the job ends as FAILED.
+    public EmailDispatchJob submit(String type, Iterator<List<EmailMessage>> batches, EmailDeliveryListener listener) {
+        evictFinishedJobs();
+        var job = new EmailDispatchJob(type);
+        jobs.put(job.getId(), job);
+        log.info("Dispatch job {} ({}) queued", job.getId(), type);
+        // the queue is bounded, so filling it happens off the caller's thread
+        feeder.execute(() -> {
+            try {
+                while (batches.hasNext()) {
+                    List<EmailMessage> batch = batches.next();
+                    job.recordQueued(batch.size());
+                    for (EmailMessage message : batch) {
+                        if (message.to() == null || message.to().isBlank()) {
+                            notifyFailed(listener, message, "No recipient email provided");
+                            job.recordSkipped();
+                            continue;
+                        }
+                        queue.put(new Delivery(job, listener, message, 1));
+                    }
+                }
+                job.queuingFinished();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.fail("Interrupted while queuing emails");
+            } catch (RuntimeException e) {
+                log.error("Failed to read emails for dispatch job {}", job.getId(), e);
+                job.fail("Failed to read emails: " + e.getMessage());
+            }
+        });
+        return job;
+    }
+
+    public Optional<EmailDispatchJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    private void work() {
+        List<Delivery> batch = new ArrayList<>(batchSize);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                rateLimiter.acquire(batch.size());
+                send(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //Longest an email can take from being queued to its last attempt: a full queue drained at the rate limit before
+    //every attempt, plus the backoff between attempts
+    public Duration maxDeliveryTime() {
+        long queueWaitMillis = queueCapacity * 1000L / ratePerSecond;
+        long backoff = backoffMillis * ((1L << (maxAttempts - 1)) - 1);
+        return Duration.ofMillis(queueWaitMillis * maxAttempts + backoff);
+    }
+
+    private void send(List<Delivery> taken) {
+        List<Delivery> batch = confirmSending(taken);
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Integer> failed;
+        try {
+            failed = emailService.sendBatch(batch.stream().map(Delivery::message).toList());
+        } catch (RuntimeException e) {
+            log.error("Unexpected error while sending a batch of {} emails", batch.size(), e);
+            failed = IntStream.range(0, batch.size()).boxed().toList();
+        }
+        var failedPositions = new HashSet<>(failed);
+        List<Delivery> sent = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Delivery delivery = batch.get(i);
+            if (failedPositions.contains(i)) {
+                attemptFailed(delivery);
+            } else {
+                sent.add(delivery);
+            }
+        }
+        recordSent(sent);
+    }
+
+    //Asks each listener which of its messages may still go out; a listener that cannot answer fails the attempt
+    private List<Delivery> confirmSending(List<Delivery> taken) {
+        Map<EmailDeliveryListener, List<Delivery>> byListener = new IdentityHashMap<>();
+        taken.forEach(d -> byListener.computeIfAbsent(d.listener(), l -> new ArrayList<>()).add(d));
+        List<Delivery> confirmed = new ArrayList<>(taken.size());
+        byListener.forEach((listener, deliveries) -> {
+            Set<EmailMessage> allowed = Collections.newSetFromMap(new IdentityHashMap<>());
+            try {
+                allowed.addAll(listener.onSending(deliveries.stream().map(Delivery::message).toList()));
+            } catch (RuntimeException e) {
+                log.error("Failed to confirm a batch of {} emails before sending", deliveries.size(), e);
+                deliveries.forEach(this::attemptFailed);
+                return;
+            }
+            for (Delivery delivery : deliveries) {
+                if (allowed.contains(delivery.message())) {
+                    confirmed.add(delivery);
+                } else {
+                    log.info("Dropping email to {}, it is no longer this dispatch's to send", delivery.message().to());
+                    delivery.job().recordSkipped();
+                }
+            }
+        });
+        return confirmed;
+    }
+
+    private void attemptFailed(Delivery delivery) {
+        if (delivery.attempt() < maxAttempts) {
+            retryLater(delivery);
+        } else {
+            log.error("Giving up on email to {} after {} attempts", delivery.message().to(), delivery.attempt());
+            notifyFailed(delivery.listener(), delivery.message(), "Failed after " + delivery.attempt() + " attempts");
+            delivery.job().recordFailed();
+        }
+    }
+
+    //Tells each listener about its sent messages before the job counts them, so a completed job is fully recorded
+    private void recordSent(List<Delivery> sent) {
+        Map<EmailDeliveryListener, List<EmailMessage>> sentByListener = new IdentityHashMap<>();
+        sent.forEach(d -> sentByListener.computeIfAbsent(d.listener(), l -> new ArrayList<>()).add(d.message()));
+        sentByListener.forEach((listener, messages) -> {
+            try {
+                listener.onSent(messages);
+            } catch (RuntimeException e) {
+                log.error("Failed to record {} sent emails", messages.size(), e);
+            }
+        });
+        sent.forEach(d -> d.job().recordSent());
+    }
+
+    private void notifyFailed(EmailDeliveryListener listener, EmailMessage message, String error) {
+        try {
+            listener.onFailed(message, error);
+        } catch (RuntimeException e) {
+            log.error("Failed to record failed email to {}", message.to(), e);
+        }
+    }
+
+    private void retryLater(Delivery delivery) {
+        long delay = backoffMillis << (delivery.attempt() - 1);
+        retryScheduler.schedule(() -> {
+            try {
+                queue.put(new Delivery(delivery.job(), delivery.listener(), delivery.message(), delivery.attempt() + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    //Finished jobs are kept for a day so their status can still be looked up
+    private void evictFinishedJobs() {
+        var cutoff = LocalDateTime.now().minusDays(1);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+    }
+}
@@ -0,0 +1,212 @@
+package com.springboot.membersdiscount.service;
+
+import com.springboot.membersdiscount.email.EmailMessage;
+import com.springboot.membersdiscount.model.EmailDispatchJob;
+import com.springboot.membersdiscount.model.EmailOutbox;
+import com.springboot.membersdiscount.repository.EmailOutboxBulkRepository;
+import com.springboot.membersdiscount.repository.EmailOutboxRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+//Campaign emails go through a persistent outbox: every email is recorded as PENDING before it is sent and marked
+//SENT or FAILED afterwards, so rerunning a campaign after a crash only sends what was not sent yet. A FAILED email is
+//tried again by the next dispatch of its campaign until it has failed app.mail.outbox.max-attempts times.
+//Each dispatch claims the page it queues for app.mail.outbox.lease and renews the claim when a worker takes the
+//emails off the queue, so dispatches of the same campaign on several nodes split its emails between them instead of
+//sending them twice. The lease must outlast the longest an email can spend in the dispatcher.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EmailOutboxService {
+    private static final Set<EmailOutbox.Status> UNSENT = EnumSet.of(EmailOutbox.Status.PENDING, EmailOutbox.Status.FAILED);
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailOutboxBulkRepository emailOutboxBulkRepository;
+    private final EmailDispatcher emailDispatcher;
+    private final ClusterNode clusterNode;
+
+    @Value("${app.mail.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.mail.outbox.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.mail.outbox.lease:30m}")
+    private Duration lease;
+
+    @Value("${app.mail.outbox.resume-on-startup:true}")
+    private boolean resumeOnStartup;
+
+    private final Map<String, EmailDispatchJob> runningCampaigns = new ConcurrentHashMap<>();
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+
+    @PostConstruct
+    public void checkLease() {
+        Duration needed = emailDispatcher.maxDeliveryTime();
+        if (lease.compareTo(needed) < 0) {
+            throw new IllegalStateException("app.mail.outbox.lease (" + lease + ") is shorter than the " + needed
+                    + " a queued email can take to be sent with the app.mail.dispatch settings, another node could "
+                    + "claim and send it again");
+        }
+    }
+
+    //Records the campaign's emails and sends every one that has not been sent yet
+    public EmailDispatchJob send(String campaign, List<EmailOutbox> entries) {
+        record(entries);
+        return dispatch(campaign);
+    }
+
+    //Adds the emails to the outbox in batches, emails already recorded for the same campaign and member are kept as they are
+    public void record(List<EmailOutbox> entries) {
+        for (int from = 0; from < entries.size(); from += batchSize) {
+            emailOutboxBulkRepository.insertNew(entries.subList(from, Math.min(from + batchSize, entries.size())));
+        }
+    }
+
+    //Sends the campaign's pending emails and the failed ones that have attempts left; a campaign that is already being
+    //sent is not started twice
+    public EmailDispatchJob dispatch(String campaign) {
+        dispatchLock.lock();
+        try {
+            var running = runningCampaigns.get(campaign);
+            if (running != null && running.getStatus() == EmailDispatchJob.Status.RUNNING) {
+                log.info("Campaign {} is already being sent by job {}", campaign, running.getId());
+                return running;
+            }
+            log.info("Sending the unsent emails of campaign {}", campaign);
+            String owner = clusterNode.getNodeId() + "/" + UUID.randomUUID();
+            var job = emailDispatcher.submit(campaign, new UnsentBatches(campaign, owner), new OutboxUpdater(owner));
+            runningCampaigns.put(campaign, job);
+            return job;
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    //Picks up campaigns that were interrupted by a shutdown or crash; in a sharded cluster only this node's shard
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        if (resumeOnStartup) {
+            resumePendingCampaigns();
+        }
+    }
+
+    //Also checked on a schedule, as the claims of a node that died only become free once their lease runs out.
+    //Every node may resume the same campaign, the claims split its emails between them.
+    @Scheduled(cron = "${app.mail.outbox.resume-cron:0 */5 * * * ?}")
+    public void resumePendingCampaigns() {
+        String shard = clusterNode.perShard("");
+        emailOutboxRepository.findCampaignsToResume(EmailOutbox.Status.PENDING, EmailOutbox.Status.SENDING,
+                        LocalDateTime.now()).stream()
+                .filter(campaign -> campaign.endsWith(shard))
+                .forEach(campaign -> {
+                    log.info("Resuming interrupted campaign {}", campaign);
+                    dispatch(campaign);
+                });
+    }
+
+    //Reads the campaign's unsent emails page by page with a keyset on the outbox ID, claiming each page before it is
+    //handed to the dispatcher. Emails of the page that another dispatch claimed first are skipped.
+    private class UnsentBatches implements Iterator<List<EmailMessage>> {
+        private final String campaign;
+        private final String owner;
+        private long lastId = 0;
+        private List<EmailOutbox> next;
+
+        UnsentBatches(String campaign, String owner) {
+            this.campaign = campaign;
+            this.owner = owner;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                LocalDateTime now = LocalDateTime.now();
+                var ids = emailOutboxRepository.findClaimableIds(campaign, UNSENT, EmailOutbox.Status.SENDING,
+                        maxAttempts, now, lastId, Limit.of(batchSize));
+                if (ids.isEmpty()) {
+                    next = List.of();
+                    break;
+                }
+                lastId = ids.get(ids.size() - 1);
+                if (emailOutboxRepository.claim(ids, UNSENT, EmailOutbox.Status.SENDING, maxAttempts, owner,
+                        now.plus(lease), now) > 0) {
+                    var claimed = emailOutboxRepository.findByOwnerAndStatusAndIdInOrderByIdAsc(owner,
+                            EmailOutbox.Status.SENDING, ids);
+                    next = claimed.isEmpty() ? null : claimed;
+                }
+            }
+            return !next.isEmpty();
+        }
+
+        @Override
+        public List<EmailMessage> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            var page = next;
+            next = null;
+            return page.stream()
+                    .map(entry -> new EmailMessage(entry.getId(), entry.getRecipient(), entry.getSubject(), entry.getBody()))
+                    .toList();
+        }
+    }
+
+    //Renews the dispatch's claim right before its emails are sent and records their outcome under the same owner
+    private class OutboxUpdater implements EmailDeliveryListener {
+        private final String owner;
+
+        OutboxUpdater(String owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public List<EmailMessage> onSending(List<EmailMessage> messages) {
+            var ids = ids(messages);
+            LocalDateTime now = LocalDateTime.now();
+            if (emailOutboxRepository.renewLease(ids, owner, EmailOutbox.Status.SENDING, now.plus(lease), now) == ids.size()) {
+                return messages;
+            }
+            Set<Long> owned = emailOutboxRepository.findByOwnerAndStatusAndIdInOrderByIdAsc(owner,
+                    EmailOutbox.Status.SENDING, ids).stream().map(EmailOutbox::getId).collect(Collectors.toSet());
+            log.warn("{} of {} emails were claimed by another dispatch before they were sent",
+                    ids.size() - owned.size(), ids.size());
+            return messages.stream().filter(message -> owned.contains(message.outboxId())).toList();
+        }
+
+        @Override
+        public void onSent(List<EmailMessage> messages) {
+            emailOutboxRepository.updateStatus(ids(messages), owner, EmailOutbox.Status.SENT, null, LocalDateTime.now());
+        }
+
+        @Override
+        public void onFailed(EmailMessage message, String error) {
+            emailOutboxRepository.updateStatus(List.of(message.outboxId()), owner, EmailOutbox.Status.FAILED, error,
+                    LocalDateTime.now());
+        }
+
+        private static List<Long> ids(List<EmailMessage> messages) {
+            return messages.stream().map(EmailMessage::outboxId).toList();
+        }
+    }
+}
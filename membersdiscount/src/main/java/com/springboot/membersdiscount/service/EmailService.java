@@ -1,24 +1,35 @@
 package com.springboot.membersdiscount.service;
 
+import com.springboot.membersdiscount.config.AppMetrics;
+import com.springboot.membersdiscount.email.EmailMessage;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class EmailService {
     @Autowired
     private final JavaMailSender mailSender;
+    private final AppMetrics appMetrics;
 
     @Value("${app.mail.from}")
     private String fromAddress;
 
     public void sendEmail(String to, String subject, String body) {
         if (to == null || to.isEmpty()) {
-            System.out.println("No recipient email provided. Skipping.");
+            log.warn("No recipient email provided. Skipping.");
             return;
         }
 
@@ -28,14 +39,63 @@ public class EmailService {
             message.setSubject(subject);
             message.setText(body);
             message.setFrom(fromAddress);
-            mailSender.send(message);
+            var sample = appMetrics.startMailSend();
+            try {
+                mailSender.send(message);
+                appMetrics.recordMailSend(sample, 1, 0);
+            } catch (Exception e) {
+                appMetrics.recordMailSend(sample, 0, 1);
+                throw e;
+            }
 
 
         } catch (Exception e) {
-            System.err.println("Failed to send email to: " + to);
-            e.printStackTrace();
+            log.error("Failed to send email to: {}", to, e);
         }
     }
 
+    //Sends the messages over a single SMTP transport session and returns the positions of the messages that failed
+    public List<Integer> sendBatch(List<EmailMessage> messages) {
+        SimpleMailMessage[] mails = new SimpleMailMessage[messages.size()];
+        for (int i = 0; i < mails.length; i++) {
+            EmailMessage email = messages.get(i);
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo(email.to());
+            message.setSubject(email.subject());
+            message.setText(email.body());
+            message.setFrom(fromAddress);
+            mails[i] = message;
+        }
+
+        var sample = appMetrics.startMailSend();
+        var failed = send(mails);
+        appMetrics.recordMailSend(sample, mails.length - failed.size(), failed.size());
+        return failed;
+    }
+
+    private List<Integer> send(SimpleMailMessage[] mails) {
+        try {
+            mailSender.send(mails);
+            return List.of();
+        } catch (MailSendException e) {
+            // failed messages are keyed by the original SimpleMailMessage instances
+            List<Integer> failed = new ArrayList<>();
+            for (int i = 0; i < mails.length; i++) {
+                if (e.getFailedMessages().containsKey(mails[i])) {
+                    failed.add(i);
+                }
+            }
+            log.warn("Failed to send {} of {} emails: {}", failed.size(), mails.length, e.getMessage());
+            return failed.isEmpty() ? allPositions(mails.length) : failed;
+        } catch (MailException e) {
+            log.warn("Failed to send batch of {} emails: {}", mails.length, e.getMessage());
+            return allPositions(mails.length);
+        }
+    }
+
+    private static List<Integer> allPositions(int size) {
+        return IntStream.range(0, size).boxed().toList();
+    }
+
 
 }
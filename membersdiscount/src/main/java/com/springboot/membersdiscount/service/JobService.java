@@ -0,0 +1,171 @@
+package com.springboot.membersdiscount.service;
+
+import com.springboot.membersdiscount.config.TaskExecutors;
+import com.springboot.membersdiscount.exception.JobAlreadyRunningException;
+import com.springboot.membersdiscount.model.BackgroundJob;
+import com.springboot.membersdiscount.repository.ClusterLockRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+//Runs long operations off the request thread and keeps their status for GET /jobs/{id}. Only one job of a type runs
+//at a time, whether it was started from the API or by a schedule, so a manual trigger cannot overlap the cron run.
+//With app.cluster.locking the job type is also locked in the database, so it runs on one node of the cluster at a
+//time (once per shard when the cluster is sharded).
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class JobService {
+    private final ClusterLockRepository clusterLockRepository;
+    private final ClusterNode clusterNode;
+    private final TaskExecutors taskExecutors;
+
+    @Value("${app.jobs.workers:2}")
+    private int workers;
+
+    @Value("${app.cluster.locking:true}")
+    private boolean clusterLocking;
+
+    //Longest a job can hold its lock, so a node that dies while running does not block the job forever
+    @Value("${app.cluster.lock-at-most-for:2h}")
+    private Duration lockAtMostFor;
+
+    //Scheduled runs keep their lock at least this long, so a node whose cron fires a little later does not run again
+    @Value("${app.cluster.lock-at-least-for:30s}")
+    private Duration lockAtLeastFor;
+
+    private final Map<String, BackgroundJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, BackgroundJob> running = new ConcurrentHashMap<>();
+    private final Map<String, LocalDateTime> lockedAt = new ConcurrentHashMap<>();
+    // a lock rather than synchronized, so a virtual thread waiting on the cluster lock query does not pin its carrier
+    private final ReentrantLock registerLock = new ReentrantLock();
+    private ExecutorService pool;
+
+    @PostConstruct
+    public void start() {
+        pool = taskExecutors.newBoundedExecutor("job-", workers);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    //Queues the work and returns its job right away; fails with a conflict while a job of the same type is running
+    public BackgroundJob submit(String type, Function<BackgroundJob, ?> work) {
+        var job = register(type, "api");
+        try {
+            pool.execute(() -> run(job, work));
+        } catch (RuntimeException e) {
+            finish(job);
+            job.fail(e.getMessage());
+            throw e;
+        }
+        return job;
+    }
+
+    //Runs the work on the calling thread, as scheduled jobs do; skipped while a job of the same type is running
+    //here or on another node
+    public Optional<BackgroundJob> runScheduled(String type, Function<BackgroundJob, ?> work) {
+        BackgroundJob job;
+        try {
+            job = register(type, "schedule");
+        } catch (JobAlreadyRunningException e) {
+            log.info("Skipping scheduled {} job: {}", type, e.getMessage());
+            return Optional.empty();
+        }
+        run(job, work);
+        return Optional.of(job);
+    }
+
+    public Optional<BackgroundJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    private BackgroundJob register(String type, String trigger) {
+        registerLock.lock();
+        try {
+            var current = running.get(type);
+            if (current != null && !current.isFinished()) {
+                throw new JobAlreadyRunningException("A " + type + " job is already running", current.getId());
+            }
+            if (clusterLocking && !lockCluster(type)) {
+                throw new JobAlreadyRunningException("A " + type + " job is already running on another node", null);
+            }
+            evictFinishedJobs();
+            var job = new BackgroundJob(type, trigger);
+            running.put(type, job);
+            jobs.put(job.getId(), job);
+            return job;
+        } finally {
+            registerLock.unlock();
+        }
+    }
+
+    private void run(BackgroundJob job, Function<BackgroundJob, ?> work) {
+        job.start();
+        log.info("Job {} ({}) started by {}", job.getId(), job.getType(), job.getTrigger());
+        try {
+            Object result = work.apply(job);
+            job.complete(result);
+            log.info("Job {} ({}) completed: {} processed, {} failed in {}/s", job.getId(), job.getType(),
+                    job.getProcessed(), job.getFailed(), String.format("%.1f", job.getThroughput()));
+        } catch (RuntimeException e) {
+            job.fail(e.getMessage());
+            log.error("Job {} ({}) failed", job.getId(), job.getType(), e);
+        } finally {
+            finish(job);
+        }
+    }
+
+    private void finish(BackgroundJob job) {
+        if (clusterLocking) {
+            unlockCluster(job.getType(), "schedule".equals(job.getTrigger()) ? lockAtLeastFor : Duration.ZERO);
+        }
+        running.remove(job.getType(), job);
+    }
+
+    //Millisecond precision, so the time read back from the database matches the one written
+    private boolean lockCluster(String type) {
+        var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        if (!clusterLockRepository.tryLock(clusterNode.perShard(type), clusterNode.getNodeId(), now, now.plus(lockAtMostFor))) {
+            return false;
+        }
+        lockedAt.put(type, now);
+        return true;
+    }
+
+    private void unlockCluster(String type, Duration keepFor) {
+        var since = lockedAt.remove(type);
+        if (since == null) {
+            return;
+        }
+        var now = LocalDateTime.now();
+        var until = since.plus(keepFor).isAfter(now) ? since.plus(keepFor) : now;
+        try {
+            clusterLockRepository.unlock(clusterNode.perShard(type), clusterNode.getNodeId(), since, until);
+        } catch (DataAccessException e) {
+            log.error("Failed to release the cluster lock of {}, it expires after {}", type, lockAtMostFor, e);
+        }
+    }
+
+    //Finished jobs are kept for a day so their status can still be looked up
+    private void evictFinishedJobs() {
+        var cutoff = LocalDateTime.now().minusDays(1);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+    }
+}
@@ -0,0 +1,325 @@
+package com.springboot.membersdiscount.service;
+
+import com.springboot.membersdiscount.analytics.MemberColumns;
+import com.springboot.membersdiscount.model.DiscountCost;
+import com.springboot.membersdiscount.model.LocationTotals;
+import com.springboot.membersdiscount.model.MemberTotals;
+import com.springboot.membersdiscount.model.MembersChangedEvent;
+import com.springboot.membersdiscount.model.TenureBucket;
+import com.springboot.membersdiscount.repository.MemberColumnsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+//Aggregates over the members for reporting, computed from a column store of the members table instead of queries.
+//Every member write marks the store stale and it is rebuilt at most every app.analytics.refresh-check-ms, so a sync
+//of many chunks causes a few rebuilds rather than one per chunk; app.analytics.max-age bounds how old it gets when
+//the writes happen on another node. Scans allocate one accumulator per segment, never per member.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MemberAnalyticsService {
+    private final MemberColumnsRepository memberColumnsRepository;
+    private final DiscountRuleEngine discountRuleEngine;
+
+    @Value("${app.analytics.parallel-threshold:50000}")
+    private int parallelThreshold;
+
+    @Value("${app.analytics.max-age:15m}")
+    private Duration maxAge;
+
+    private volatile MemberColumns columns;
+    private volatile boolean stale;
+    // held while loading from the database, so it is a lock rather than a monitor that would pin a virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        columns();
+    }
+
+    //Reloads the store from the members table; reads keep using the previous store until the new one is built
+    public MemberColumns refresh() {
+        lock.lock();
+        try {
+            long started = System.currentTimeMillis();
+            stale = false;
+            try {
+                columns = memberColumnsRepository.load();
+            } catch (RuntimeException e) {
+                stale = true;
+                throw e;
+            }
+            log.info("Analytics store built with {} members in {} ms", columns.rows(),
+                    System.currentTimeMillis() - started);
+            return columns;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMembersChanged(MembersChangedEvent event) {
+        stale = true;
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.refresh-check-ms:5000}",
+            initialDelayString = "${app.analytics.refresh-check-ms:5000}")
+    public void refreshIfStale() {
+        var current = columns;
+        if (current != null && (stale || current.builtAt().plus(maxAge).isBefore(LocalDateTime.now()))) {
+            refresh();
+        }
+    }
+
+    public MemberTotals totals() {
+        var columns = columns();
+        var sums = scanLocations(columns);
+        long members = 0;
+        long paid = 0;
+        double revenue = 0;
+        double outstanding = 0;
+        for (int code = 0; code < columns.locationCount(); code++) {
+            members += sums.members[code];
+            paid += sums.paid[code];
+            revenue += sums.revenue[code];
+            outstanding += sums.outstanding[code];
+        }
+        return new MemberTotals(members, paid, members - paid, cents(revenue), cents(outstanding), columns.builtAt());
+    }
+
+    //Locations by revenue, highest first
+    public List<LocationTotals> revenueByLocation() {
+        var columns = columns();
+        var sums = scanLocations(columns);
+        List<LocationTotals> locations = new ArrayList<>(columns.locationCount());
+        for (int code = 0; code < columns.locationCount(); code++) {
+            locations.add(new LocationTotals(columns.location(code), sums.members[code], sums.paid[code],
+                    sums.members[code] - sums.paid[code], cents(sums.revenue[code]), cents(sums.outstanding[code])));
+        }
+        locations.sort(Comparator.comparingDouble(LocationTotals::revenue).reversed());
+        return locations;
+    }
+
+    //Applies the current discount rules to every member, the first matching rule counts as for the eligible list
+    public List<DiscountCost> discountCost() {
+        var columns = columns();
+        var rules = discountRuleEngine.rules();
+        var evaluator = rules.evaluator(LocalDate.now());
+        int ruleCount = rules.definitions().size();
+        // normalized once per location, so match() has nothing left to trim or lower-case per member
+        String[] locations = new String[columns.locationCount()];
+        for (int code = 0; code < locations.length; code++) {
+            String location = columns.location(code);
+            locations[code] = location == null ? null : location.trim().toLowerCase(Locale.ROOT);
+        }
+        var sums = scan(columns, () -> new DiscountSums(ruleCount), (acc, from, to) -> {
+            for (int row = from; row < to; row++) {
+                double price = columns.price(row);
+                if (Double.isNaN(price)) {
+                    continue;
+                }
+                int memberSince = columns.memberSince(row);
+                int rule = evaluator.match(columns.paid(row), memberSince, memberSince != MemberColumns.NO_DAY,
+                        locations[columns.locationCode(row)], price);
+                if (rule >= 0) {
+                    acc.members[rule]++;
+                    acc.fullPrice[rule] += price;
+                    acc.discount[rule] += price * rules.percent(rule) / 100;
+                }
+            }
+        }, DiscountSums::merge);
+        List<DiscountCost> costs = new ArrayList<>(ruleCount);
+        for (int rule = 0; rule < ruleCount; rule++) {
+            costs.add(new DiscountCost(rules.definitions().get(rule).name(), rules.percent(rule), sums.members[rule],
+                    cents(sums.fullPrice[rule]), cents(sums.discount[rule])));
+        }
+        return costs;
+    }
+
+    //Members by full years of membership up to today; members without a memberSince are left out
+    public List<TenureBucket> tenureDistribution() {
+        var columns = columns();
+        if (columns.firstMemberSince() == MemberColumns.NO_DAY) {
+            return List.of();
+        }
+        LocalDate today = LocalDate.now();
+        int maxYears = Math.max(0, Period.between(LocalDate.ofEpochDay(columns.firstMemberSince()), today).getYears());
+        // anniversaries[y] is the last day someone could have joined to be a member for y full years today
+        long[] anniversaries = new long[maxYears + 1];
+        for (int years = 0; years <= maxYears; years++) {
+            anniversaries[years] = today.minusYears(years).toEpochDay();
+        }
+        var sums = scan(columns, () -> new TenureSums(maxYears + 1), (acc, from, to) -> {
+            for (int row = from; row < to; row++) {
+                int memberSince = columns.memberSince(row);
+                if (memberSince == MemberColumns.NO_DAY) {
+                    continue;
+                }
+                int years = fullYears(anniversaries, memberSince);
+                acc.members[years]++;
+                if (columns.paid(row)) {
+                    acc.paid[years]++;
+                }
+            }
+        }, TenureSums::merge);
+        List<TenureBucket> buckets = new ArrayList<>(maxYears + 1);
+        for (int years = 0; years <= maxYears; years++) {
+            buckets.add(new TenureBucket(years, sums.members[years], sums.paid[years]));
+        }
+        return buckets;
+    }
+
+    private MemberColumns columns() {
+        var current = columns;
+        if (current != null) {
+            return current;
+        }
+        lock.lock();
+        try {
+            return columns != null ? columns : refresh();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private LocationSums scanLocations(MemberColumns columns) {
+        return scan(columns, () -> new LocationSums(columns.locationCount()), (acc, from, to) -> {
+            for (int row = from; row < to; row++) {
+                int code = columns.locationCode(row);
+                double price = columns.price(row);
+                acc.members[code]++;
+                if (columns.paid(row)) {
+                    acc.paid[code]++;
+                    if (!Double.isNaN(price)) {
+                        acc.revenue[code] += price;
+                    }
+                } else if (!Double.isNaN(price)) {
+                    acc.outstanding[code] += price;
+                }
+            }
+        }, LocationSums::merge);
+    }
+
+    //Splits the rows into segments, scanned in parallel from app.analytics.parallel-threshold members on, each into
+    //its own accumulator; the accumulators are merged at the end
+    private <A> A scan(MemberColumns columns, Supplier<A> accumulator, SegmentScan<A> segmentScan, BinaryOperator<A> merge) {
+        int rows = columns.rows();
+        int segments = rows < parallelThreshold ? 1 : ForkJoinPool.getCommonPoolParallelism() * 4;
+        var range = IntStream.range(0, segments);
+        return (segments > 1 ? range.parallel() : range).mapToObj(segment -> {
+            A acc = accumulator.get();
+            segmentScan.scan(acc, (int) ((long) rows * segment / segments), (int) ((long) rows * (segment + 1) / segments));
+            return acc;
+        }).reduce(merge).orElseGet(accumulator);
+    }
+
+    // index of the last anniversary the member joined on or before, found by binary search over the descending days
+    private static int fullYears(long[] anniversaries, int memberSince) {
+        int low = 0;
+        int high = anniversaries.length - 1;
+        if (memberSince > anniversaries[0]) {
+            return 0; // joins in the future count as new members
+        }
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (memberSince <= anniversaries[mid]) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private static double cents(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+
+    @FunctionalInterface
+    private interface SegmentScan<A> {
+        void scan(A accumulator, int from, int to);
+    }
+
+    private static final class LocationSums {
+        final long[] members;
+        final long[] paid;
+        final double[] revenue;
+        final double[] outstanding;
+
+        LocationSums(int locations) {
+            members = new long[locations];
+            paid = new long[locations];
+            revenue = new double[locations];
+            outstanding = new double[locations];
+        }
+
+        LocationSums merge(LocationSums other) {
+            for (int i = 0; i < members.length; i++) {
+                members[i] += other.members[i];
+                paid[i] += other.paid[i];
+                revenue[i] += other.revenue[i];
+                outstanding[i] += other.outstanding[i];
+            }
+            return this;
+        }
+    }
+
+    private static final class DiscountSums {
+        final long[] members;
+        final double[] fullPrice;
+        final double[] discount;
+
+        DiscountSums(int rules) {
+            members = new long[rules];
+            fullPrice = new double[rules];
+            discount = new double[rules];
+        }
+
+        DiscountSums merge(DiscountSums other) {
+            for (int i = 0; i < members.length; i++) {
+                members[i] += other.members[i];
+                fullPrice[i] += other.fullPrice[i];
+                discount[i] += other.discount[i];
+            }
+            return this;
+        }
+    }
+
+    private static final class TenureSums {
+        final long[] members;
+        final long[] paid;
+
+        TenureSums(int buckets) {
+            members = new long[buckets];
+            paid = new long[buckets];
+        }
+
+        TenureSums merge(TenureSums other) {
+            for (int i = 0; i < members.length; i++) {
+                members[i] += other.members[i];
+                paid[i] += other.paid[i];
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.springboot.membersdiscount.service;
+
+import com.springboot.membersdiscount.config.TaskExecutors;
+import com.springboot.membersdiscount.model.ExportReport;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Posts members to the external API in chunks of app.export.chunk-size with at most app.export.parallelism requests
+//in flight. Chunks that fail are retried on their own after a backoff, the ones that were accepted are not sent again.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MemberExporter {
+    private final RestTemplate restTemplate;
+    private final TaskExecutors taskExecutors;
+
+    @Value("${app.export.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.export.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.export.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.export.backoff-ms:1000}")
+    private long backoffMillis;
+
+    private ExecutorService pool;
+
+    private record Chunk<T>(int index, List<T> members) {
+    }
+
+    @PostConstruct
+    public void start() {
+        pool = taskExecutors.newBoundedExecutor("member-export-", parallelism);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    //Sends the members and waits until every chunk was accepted or ran out of attempts
+    public <T> ExportReport<T> export(String url, List<T> members) {
+        long started = System.currentTimeMillis();
+        List<Chunk<T>> pending = new ArrayList<>();
+        for (int from = 0, index = 1; from < members.size(); from += chunkSize, index++) {
+            pending.add(new Chunk<>(index, members.subList(from, Math.min(from + chunkSize, members.size()))));
+        }
+        int chunks = pending.size();
+        log.info("Exporting {} members in {} chunks of up to {} ({} in parallel)", members.size(), chunks, chunkSize, parallelism);
+
+        int attempt = 0;
+        while (!pending.isEmpty() && attempt < maxAttempts) {
+            if (attempt > 0 && !sleep(backoffMillis << (attempt - 1))) {
+                break;
+            }
+            attempt++;
+            pending = sendAll(url, pending, chunks, attempt);
+        }
+
+        var report = new ExportReport<>(members.size(), chunks, chunks - pending.size(), pending.size(), attempt,
+                System.currentTimeMillis() - started, pending.stream().flatMap(chunk -> chunk.members().stream()).toList());
+        if (report.complete()) {
+            log.info("Exported {} members in {} chunks in {} ms", report.members(), chunks, report.durationMillis());
+        } else {
+            log.error("Export incomplete: {} of {} chunks failed after {} attempts (chunks {})", pending.size(), chunks,
+                    attempt, pending.stream().map(Chunk::index).toList());
+        }
+        return report;
+    }
+
+    //Posts the chunks concurrently and returns the ones that failed
+    private <T> List<Chunk<T>> sendAll(String url, List<Chunk<T>> chunks, int total, int attempt) {
+        var done = new AtomicInteger(total - chunks.size());
+        List<CompletableFuture<Chunk<T>>> futures = chunks.stream()
+                .map(chunk -> CompletableFuture.supplyAsync(() -> send(url, chunk, done, total, attempt), pool))
+                .toList();
+        return futures.stream()
+                .map(CompletableFuture::join)
+                .filter(failed -> failed != null)
+                .toList();
+    }
+
+    //Returns null when the chunk was accepted, the chunk itself when it has to be retried
+    private <T> Chunk<T> send(String url, Chunk<T> chunk, AtomicInteger done, int total, int attempt) {
+        try {
+            // the upstream echoes the body back, it is discarded without being read into objects
+            restTemplate.postForEntity(url, chunk.members(), Void.class);
+            log.info("Exported chunk {} ({} members), {}/{} chunks done", chunk.index(), chunk.members().size(),
+                    done.incrementAndGet(), total);
+            return null;
+        } catch (RestClientException e) {
+            log.warn("Failed to export chunk {} (attempt {}/{}): {}", chunk.index(), attempt, maxAttempts, e.getMessage());
+            return chunk;
+        }
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.springboot.membersdiscount.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.membersdiscount.model.Member;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MemberFeedReader {
+    private final ObjectMapper objectMapper;
+
+    //Members handed to the consumer, and array elements that were skipped because they are not a valid member
+    public record ReadResult(long members, long failed) {
+    }
+
+    //Reads a JSON array of members token by token and hands them to the consumer in chunks of at most chunkSize.
+    //Only one chunk is held in memory at a time, so the size of the feed does not matter. Elements that are not a
+    //member, e.g. null, a number or an object with a malformed field, are skipped and counted as failed.
+    public ReadResult read(InputStream body, int chunkSize, Consumer<List<Member>> chunkConsumer) throws IOException {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1");
+        }
+        long members = 0;
+        long failed = 0;
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of members from external API");
+            }
+            List<Member> chunk = new ArrayList<>(chunkSize);
+            for (long position = 0; ; position++) {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.END_ARRAY) {
+                    break;
+                }
+                if (token == null) {
+                    throw new IOException("Member feed ended before the closing bracket of the array");
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    failed++;
+                    log.warn("Skipping feed element at position {} that is not a member: {}", position, token);
+                    continue;
+                }
+                // read the element as a tree first so a single malformed member does not break the whole feed
+                JsonNode node = objectMapper.readTree(parser);
+                try {
+                    chunk.add(objectMapper.treeToValue(node, Member.class));
+                    members++;
+                } catch (JsonProcessingException e) {
+                    failed++;
+                    log.warn("Skipping malformed member in feed at position {}: {}", position, e.getOriginalMessage());
+                }
+                if (chunk.size() == chunkSize) {
+                    chunkConsumer.accept(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                chunkConsumer.accept(chunk);
+            }
+        }
+        return new ReadResult(members, failed);
+    }
+}
@@ -0,0 +1,212 @@
+package com.springboot.membersdiscount.service;
+
+import com.springboot.membersdiscount.config.TaskExecutors;
+import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.model.UpsertResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+//Writes incoming members on a pool of app.ingestion.parallelism workers. Members are partitioned by ID: each ID hashes
+//to one of the workers' lanes, and a lane's partitions are written one after the other, each in one transaction, so
+//partitions in flight never share a member ID and do not wait on each other's row locks. A member that appears more
+//than once is written as its last record, like the sequential loop did. The lock timeouts and deadlocks that remain
+//(e.g. on the gap locks of inserts) are retried.
+//At most as many partitions are in flight as there are connections to spare in the Hikari pool; the thread reading
+//the feed blocks until one finishes, so a fast feed cannot exhaust the pool or pile up chunks in memory.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MemberIngestor {
+    private final TaskExecutors taskExecutors;
+
+    @Value("${app.ingestion.parallelism:4}")
+    private int parallelism;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
+
+    @Value("${app.ingestion.reserved-connections:2}")
+    private int reservedConnections;
+
+    @Value("${app.ingestion.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.ingestion.backoff-ms:200}")
+    private long backoffMillis;
+
+    private ExecutorService pool;
+    private int workers;
+
+    @PostConstruct
+    public void start() {
+        workers = Math.max(1, Math.min(parallelism, connectionPoolSize - reservedConnections));
+        pool = taskExecutors.newBoundedExecutor("member-ingest-", workers);
+        log.info("Member ingestion uses {} workers ({} connections in the pool)", workers, connectionPoolSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdownNow();
+    }
+
+    //Starts an ingestion run that saves every submitted partition with the given writer
+    public Run start(Function<List<Member>, UpsertResult> writer) {
+        return start(writer, result -> { });
+    }
+
+    //Same, and reports the outcome of each partition to the listener as soon as it is written
+    public Run start(Function<List<Member>, UpsertResult> writer, Consumer<UpsertResult> progress) {
+        return new Run(writer, progress);
+    }
+
+    //Mixed differently from ClusterNode.shardOf, so a node that owns one cluster shard still uses every lane
+    static int laneOf(long memberId, int lanes) {
+        long h = Long.reverse(memberId) * 0xC2B2AE3D27D4EB4FL;
+        h ^= h >>> 29;
+        return (int) Math.floorMod(h, (long) lanes);
+    }
+
+    //Members collected for one lane; a later record of the same ID replaces the earlier one
+    private static class Lane {
+        private Map<Long, Member> members = new LinkedHashMap<>();
+        private List<Member> withoutId = new ArrayList<>();
+        private int superseded;
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+        int size() {
+            return members.size() + withoutId.size();
+        }
+    }
+
+    public class Run {
+        private final Function<List<Member>, UpsertResult> writer;
+        private final Consumer<UpsertResult> progress;
+        private final Semaphore inFlight = new Semaphore(workers);
+        private final AtomicReference<UpsertResult> totals = new AtomicReference<>(UpsertResult.EMPTY);
+        private final AtomicInteger partitions = new AtomicInteger();
+        private final Lane[] lanes = new Lane[workers];
+        private int partitionSize = 1;
+
+        private Run(Function<List<Member>, UpsertResult> writer, Consumer<UpsertResult> progress) {
+            this.writer = writer;
+            this.progress = progress;
+            for (int i = 0; i < lanes.length; i++) {
+                lanes[i] = new Lane();
+            }
+        }
+
+        //Routes the members to their lanes and hands every lane that has a partition's worth of members to a worker,
+        //blocking while all workers are busy. Partitions are as large as the largest chunk submitted.
+        //Called from the one thread that reads the feed.
+        public void submit(List<Member> members) {
+            partitionSize = Math.max(partitionSize, members.size());
+            for (Member member : members) {
+                Lane lane = lanes[member.getId() == null ? 0 : laneOf(member.getId(), lanes.length)];
+                if (member.getId() == null) {
+                    lane.withoutId.add(member);
+                } else if (lane.members.put(member.getId(), member) != null) {
+                    lane.superseded++;
+                }
+                if (lane.size() >= partitionSize) {
+                    flush(lane);
+                }
+            }
+        }
+
+        //Writes what the lanes still hold, waits for the partitions still being written and returns the totals
+        public UpsertResult await() {
+            for (Lane lane : lanes) {
+                flush(lane);
+            }
+            inFlight.acquireUninterruptibly(workers);
+            inFlight.release(workers);
+            return totals.get();
+        }
+
+        //Queues the lane's members as one partition behind the lane's previous one
+        private void flush(Lane lane) {
+            if (lane.size() == 0 && lane.superseded == 0) {
+                return;
+            }
+            List<Member> partition = new ArrayList<>(lane.members.values());
+            partition.sort(Comparator.comparing(Member::getId));
+            partition.addAll(lane.withoutId);
+            var superseded = new UpsertResult(0, 0, 0, lane.superseded);
+            lane.members = new LinkedHashMap<>();
+            lane.withoutId = new ArrayList<>();
+            lane.superseded = 0;
+            int index = partitions.incrementAndGet();
+            var started = new AtomicBoolean();
+            inFlight.acquireUninterruptibly();
+            lane.tail = lane.tail.thenRunAsync(() -> {
+                started.set(true);
+                try {
+                    // records replaced by a later one of the same member count as unchanged
+                    var result = (partition.isEmpty() ? UpsertResult.EMPTY : write(index, partition)).plus(superseded);
+                    totals.accumulateAndGet(result, UpsertResult::plus);
+                    progress.accept(result);
+                } finally {
+                    inFlight.release();
+                }
+            }, pool).handle((ignored, e) -> {
+                // the lane goes on after a failed partition; one the pool rejected never took its permit back
+                if (e != null && !started.get()) {
+                    log.error("Could not write partition {}", index, e);
+                    totals.accumulateAndGet(new UpsertResult(0, 0, partition.size()), UpsertResult::plus);
+                    inFlight.release();
+                }
+                return null;
+            });
+        }
+
+        //Lock timeouts and deadlocks between partitions are retried; any other failure counts the partition as failed
+        private UpsertResult write(int index, List<Member> partition) {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    var result = writer.apply(partition);
+                    log.debug("Wrote partition {} (IDs {}..{}, {} members)", index, partition.get(0).getId(),
+                            partition.get(partition.size() - 1).getId(), partition.size());
+                    return result;
+                } catch (TransientDataAccessException e) {
+                    if (attempt >= maxAttempts || !sleep(backoffMillis * attempt)) {
+                        log.error("Failed to write partition {} after {} attempts", index, attempt, e);
+                        return new UpsertResult(0, 0, partition.size());
+                    }
+                    log.warn("Retrying partition {} (attempt {}/{}): {}", index, attempt, maxAttempts, e.getMessage());
+                } catch (RuntimeException e) {
+                    log.error("Failed to write partition {}", index, e);
+                    return new UpsertResult(0, 0, partition.size());
+                }
+            }
+        }
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
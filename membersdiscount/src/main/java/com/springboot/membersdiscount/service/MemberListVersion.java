@@ -0,0 +1,49 @@
+package com.springboot.membersdiscount.service;
+
+import com.springboot.membersdiscount.model.MembersChangedEvent;
+import com.springboot.membersdiscount.model.SyncWatermark;
+import com.springboot.membersdiscount.repository.SyncWatermarkRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+//A version of the members shared by every node through a sync_watermarks row. The node that writes members gives it
+//a new token once the write is committed; the other nodes compare it with the token they last saw before serving a
+//cached member list, so a sync or payment on one node reaches the caches of all of them.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MemberListVersion {
+    static final String SOURCE = "member-lists";
+
+    private final SyncWatermarkRepository syncWatermarkRepository;
+
+    private final AtomicReference<String> lastSeen = new AtomicReference<>();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMembersChanged(MembersChangedEvent event) {
+        var version = new SyncWatermark(SOURCE);
+        version.setEtag(UUID.randomUUID().toString());
+        version.setLastSyncAt(LocalDateTime.now());
+        try {
+            syncWatermarkRepository.save(version);
+        } catch (DataAccessException e) {
+            // another node creating the row at the same time changed the version as well
+            log.warn("Could not publish the new member version: {}", e.getMessage());
+        }
+    }
+
+    //True once per change made on any node since the previous call
+    public boolean changedSinceLastCheck() {
+        String current = syncWatermarkRepository.findById(SOURCE).map(SyncWatermark::getEtag).orElse(null);
+        String seen = lastSeen.get();
+        return !Objects.equals(current, seen) && lastSeen.compareAndSet(seen, current);
+    }
+}
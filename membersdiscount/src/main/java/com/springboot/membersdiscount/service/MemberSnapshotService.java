@@ -0,0 +1,173 @@
+package com.springboot.membersdiscount.service;
+
+import com.springboot.membersdiscount.exception.SnapshotNotFoundException;
+import com.springboot.membersdiscount.model.BackgroundJob;
+import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.model.MemberSnapshot;
+import com.springboot.membersdiscount.model.UpsertResult;
+import com.springboot.membersdiscount.repository.MemberRepository;
+import com.springboot.membersdiscount.snapshot.MemberSnapshotReader;
+import com.springboot.membersdiscount.snapshot.MemberSnapshotWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+//Saves the members table to compact binary snapshot files in app.snapshot.dir and loads them back. Exports stream the
+//rows from the database into the file; imports hand each block of the file to the parallel ingestion as one partition,
+//so a snapshot restores through the same batched upsert as the feed and refreshes the caches and eligibility snapshot.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MemberSnapshotService {
+    public static final String JOB_EXPORT_SNAPSHOT = "exportMembersSnapshot";
+    public static final String JOB_IMPORT_SNAPSHOT = "importMembersSnapshot";
+    private static final String EXTENSION = ".mbrs";
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9._-]{1,100}");
+
+    private final DiscountService discountService;
+    private final MemberRepository memberRepository;
+    private final MemberIngestor memberIngestor;
+    private final JobService jobService;
+
+    @Value("${app.snapshot.dir:snapshots}")
+    private Path directory;
+
+    @Value("${app.snapshot.block-size:8192}")
+    private int blockSize;
+
+    //Snapshot to load when the application starts with an empty members table, blank to start empty
+    @Value("${app.snapshot.restore-on-startup:}")
+    private String restoreOnStartup;
+
+    public BackgroundJob startExport(String name) {
+        Path file = file(name);
+        return jobService.submit(JOB_EXPORT_SNAPSHOT, job -> export(job, file));
+    }
+
+    public BackgroundJob startImport(String name) {
+        Path file = existing(name);
+        return jobService.submit(JOB_IMPORT_SNAPSHOT, job -> importSnapshot(job, file));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreOnStartup() {
+        if (restoreOnStartup.isBlank()) {
+            return;
+        }
+        if (memberRepository.count() > 0) {
+            log.info("Members table is not empty, not restoring snapshot {}", restoreOnStartup);
+            return;
+        }
+        Path file = file(restoreOnStartup);
+        if (!Files.exists(file)) {
+            log.warn("Snapshot {} to restore on startup does not exist", file);
+            return;
+        }
+        jobService.runScheduled(JOB_IMPORT_SNAPSHOT, job -> importSnapshot(job, file));
+    }
+
+    //Lists the snapshots in app.snapshot.dir, newest first
+    public List<MemberSnapshot> listSnapshots() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(EXTENSION))
+                    .map(this::describe)
+                    .sorted(Comparator.comparing(MemberSnapshot::createdAt).reversed())
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list snapshots in " + directory, e);
+        }
+    }
+
+    //Writes every member to the file, replacing an older snapshot with the same name only once it is complete
+    public MemberSnapshot export(BackgroundJob job, Path file) {
+        job.setTotal(memberRepository.count());
+        try {
+            Files.createDirectories(file.getParent());
+            var writer = new MemberSnapshotWriter(file, blockSize);
+            try {
+                discountService.streamAllMembers(member -> write(writer, member, job));
+                writer.close();
+            } catch (RuntimeException e) {
+                writer.abort();
+                throw e;
+            }
+            job.recordProgress(writer.getMembers() % blockSize, 0);
+            log.info("Exported {} members to {}", writer.getMembers(), file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write snapshot " + file, e);
+        }
+        return describe(file);
+    }
+
+    //Upserts every member of the file; blocks are written in parallel while the next ones are decoded
+    public UpsertResult importSnapshot(BackgroundJob job, Path file) {
+        try (var reader = new MemberSnapshotReader(file)) {
+            job.setTotal(reader.getMembers());
+            var run = memberIngestor.start(discountService::updateOrSaveMembers,
+                    result -> job.recordProgress(result.processed(), result.failed()));
+            for (List<Member> block = reader.nextBlock(); !block.isEmpty(); block = reader.nextBlock()) {
+                run.submit(block);
+            }
+            var result = run.await();
+            log.info("Imported {} members from {} (inserted: {}, updated: {}, unchanged: {}, failed: {})",
+                    result.processed(), file, result.inserted(), result.updated(), result.unchanged(), result.failed());
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read snapshot " + file, e);
+        }
+    }
+
+    private void write(MemberSnapshotWriter writer, Member member, BackgroundJob job) {
+        try {
+            writer.write(member);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (writer.getMembers() % blockSize == 0) {
+            job.recordProgress(blockSize, 0);
+        }
+    }
+
+    private MemberSnapshot describe(Path file) {
+        String fileName = file.getFileName().toString();
+        try (var reader = new MemberSnapshotReader(file)) {
+            var modified = Files.getLastModifiedTime(file).toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+            return new MemberSnapshot(fileName.substring(0, fileName.length() - EXTENSION.length()),
+                    reader.getMembers(), Files.size(file), modified);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read snapshot " + file, e);
+        }
+    }
+
+    private Path existing(String name) {
+        Path file = file(name);
+        if (!Files.isRegularFile(file)) {
+            throw new SnapshotNotFoundException("No snapshot found with name " + name);
+        }
+        return file;
+    }
+
+    //Names become file names, so only letters, digits, dots, dashes and underscores are accepted
+    private Path file(String name) {
+        if (name == null || !NAME.matcher(name).matches() || name.startsWith(".")) {
+            throw new IllegalArgumentException("Snapshot names may only contain letters, digits, '.', '-' and '_'");
+        }
+        return directory.resolve(name + EXTENSION).toAbsolutePath();
+    }
+}
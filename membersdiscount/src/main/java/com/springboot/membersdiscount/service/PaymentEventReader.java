@@ -0,0 +1,175 @@
+package com.springboot.membersdiscount.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+//Reads payment events line by line and hands the paying member IDs to the consumer in batches of at most batchSize.
+//NDJSON events are objects with a memberId (or id) field. CSV events are RFC 4180 rows, quoted cells may contain
+//commas and "" but not line breaks; the first line must be a header with a memberId (or id) column unless the
+//format says there is none, then the first column is used. Lines that cannot be read are counted and skipped.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PaymentEventReader {
+    public static final String TEXT_CSV = "text/csv";
+    private static final int LOGGED_INVALID_LINES = 10;
+
+    private final ObjectMapper objectMapper;
+
+    public enum Format {NDJSON, CSV, CSV_WITHOUT_HEADER}
+
+    //duplicates are events for a member ID that an earlier event of the same stream already named
+    public record ReadResult(long events, long invalid, long duplicates) {
+    }
+
+    //Batches are sorted by ID and every member ID is handed on once per stream, so concurrent updates lock rows in
+    //the same order and duplicates can be told apart from members who had already paid
+    public ReadResult read(InputStream body, Format format, int batchSize, Consumer<SortedSet<Long>> batchConsumer)
+            throws IOException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        boolean csv = format != Format.NDJSON;
+        boolean header = format == Format.CSV;
+        long events = 0;
+        long invalid = 0;
+        long duplicates = 0;
+        int idColumn = 0;
+        Set<Long> seen = new HashSet<>();
+        SortedSet<Long> batch = new TreeSet<>();
+        try (var reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            for (long number = 1; (line = reader.readLine()) != null; number++) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (header) {
+                    idColumn = headerIdColumn(line);
+                    header = false;
+                    continue;
+                }
+                Long memberId = csv ? csvMemberId(line, idColumn) : jsonMemberId(line);
+                if (memberId == null) {
+                    if (++invalid <= LOGGED_INVALID_LINES) {
+                        log.warn("Skipping payment event on line {} without a valid member ID: {}", number, line);
+                    }
+                    continue;
+                }
+                events++;
+                if (!seen.add(memberId)) {
+                    duplicates++;
+                    continue;
+                }
+                batch.add(memberId);
+                if (batch.size() == batchSize) {
+                    batchConsumer.accept(batch);
+                    batch = new TreeSet<>();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            batchConsumer.accept(batch);
+        }
+        return new ReadResult(events, invalid, duplicates);
+    }
+
+    private Long jsonMemberId(String line) {
+        try {
+            JsonNode event = objectMapper.readTree(line);
+            JsonNode id = event.hasNonNull("memberId") ? event.get("memberId") : event.get("id");
+            if (id == null || !id.canConvertToExactIntegral()) {
+                return id != null && id.isTextual() ? parseId(id.asText()) : null;
+            }
+            return id.asLong();
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static Long csvMemberId(String line, int idColumn) {
+        List<String> cells = cells(line);
+        return cells != null && idColumn < cells.size() ? parseId(cells.get(idColumn)) : null;
+    }
+
+    private static int headerIdColumn(String header) {
+        List<String> cells = cells(header);
+        if (cells != null) {
+            for (int i = 0; i < cells.size(); i++) {
+                String name = cells.get(i).toLowerCase(Locale.ROOT);
+                if (name.equals("memberid") || name.equals("member_id")) {
+                    return i;
+                }
+            }
+            for (int i = 0; i < cells.size(); i++) {
+                if (cells.get(i).equalsIgnoreCase("id")) {
+                    return i;
+                }
+            }
+        }
+        throw new IllegalArgumentException("CSV header has no memberId or id column, send text/csv;header=absent "
+                + "for rows without a header: " + header);
+    }
+
+    //Splits one CSV row, unquoting quoted cells and trimming the rest. Returns null for a row with an unclosed quote.
+    private static List<String> cells(String line) {
+        List<String> cells = new ArrayList<>();
+        var cell = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    cell.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"' && cell.toString().isBlank()) {
+                quoted = true;
+                wasQuoted = true;
+                cell.setLength(0);
+            } else if (c == ',') {
+                cells.add(wasQuoted ? cell.toString() : cell.toString().trim());
+                cell.setLength(0);
+                wasQuoted = false;
+            } else if (!wasQuoted || !Character.isWhitespace(c)) {
+                cell.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        cells.add(wasQuoted ? cell.toString() : cell.toString().trim());
+        return cells;
+    }
+
+    private static Long parseId(String value) {
+        try {
+            long id = Long.parseLong(value.trim());
+            return id > 0 ? id : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
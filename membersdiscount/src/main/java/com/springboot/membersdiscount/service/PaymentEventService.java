@@ -0,0 +1,43 @@
+package com.springboot.membersdiscount.service;
+
+import com.springboot.membersdiscount.config.AppMetrics;
+import com.springboot.membersdiscount.model.MarkPaidResult;
+import com.springboot.membersdiscount.model.PaymentImportResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+//Applies payment events from the payment processor as they are streamed in: every batch of app.payments.batch-size
+//member IDs becomes one set-based UPDATE in its own short transaction, so a burst of events never holds a long
+//transaction or the whole request body in memory; only the distinct member IDs are kept to recognise duplicates.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PaymentEventService {
+    private final PaymentEventReader paymentEventReader;
+    private final DiscountService discountService;
+    private final AppMetrics appMetrics;
+
+    @Value("${app.payments.batch-size:1000}")
+    private int batchSize;
+
+    public PaymentImportResult importPayments(InputStream body, PaymentEventReader.Format format) throws IOException {
+        long started = System.currentTimeMillis();
+        var applied = new AtomicReference<>(MarkPaidResult.EMPTY);
+        var read = paymentEventReader.read(body, format, batchSize,
+                batch -> applied.accumulateAndGet(discountService.markPaid(batch), MarkPaidResult::plus));
+        var marked = applied.get();
+        var result = new PaymentImportResult(read.events(), read.invalid(), read.duplicates(), marked.markedPaid(),
+                marked.alreadyPaid(), marked.unknown(), System.currentTimeMillis() - started);
+        appMetrics.recordPayments(result);
+        log.info("Applied {} payment events in {} ms: {} members marked as paid, {} already paid, {} unknown, "
+                        + "{} duplicates, {} invalid lines", result.events(), result.durationMillis(),
+                result.markedPaid(), result.alreadyPaid(), result.unknown(), result.duplicates(), result.invalid());
+        return result;
+    }
+}
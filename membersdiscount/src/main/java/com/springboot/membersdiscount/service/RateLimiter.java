@@ -0,0 +1,32 @@
+package com.springboot.membersdiscount.service;
+
+import java.util.concurrent.TimeUnit;
+
+//Smooth rate limiter: permits are handed out at a fixed spacing so the configured rate is never exceeded
+public class RateLimiter {
+    private final long intervalNanos;
+    private long nextFreeNanos;
+
+    public RateLimiter(int permitsPerSecond) {
+        if (permitsPerSecond < 1) {
+            throw new IllegalArgumentException("Rate must be at least 1 permit per second");
+        }
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    //Blocks until the given number of permits is available
+    public void acquire(int permits) throws InterruptedException {
+        long waitNanos = reserve(permits);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private synchronized long reserve(int permits) {
+        long now = System.nanoTime();
+        long start = Math.max(now, nextFreeNanos);
+        nextFreeNanos = start + permits * intervalNanos;
+        return start - now;
+    }
+}
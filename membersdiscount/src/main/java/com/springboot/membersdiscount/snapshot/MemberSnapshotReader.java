@@ -0,0 +1,148 @@
+package com.springboot.membersdiscount.snapshot;
+
+import com.springboot.membersdiscount.exception.InvalidSnapshotException;
+import com.springboot.membersdiscount.model.Member;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static com.springboot.membersdiscount.snapshot.MemberSnapshotWriter.*;
+
+//Reads a snapshot written by MemberSnapshotWriter one block at a time. Each block is memory-mapped and decoded
+//straight from the mapping, so the file is never copied onto the heap as a whole.
+public class MemberSnapshotReader implements AutoCloseable {
+    private final FileChannel channel;
+    private final long size;
+    private final long members;
+    private final CRC32 crc = new CRC32();
+    private long position = FILE_HEADER_BYTES;
+
+    public MemberSnapshotReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        try {
+            if (size < FILE_HEADER_BYTES) {
+                throw new InvalidSnapshotException("Snapshot " + file.getFileName() + " is too short");
+            }
+            ByteBuffer header = map(0, FILE_HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new InvalidSnapshotException(file.getFileName() + " is not a member snapshot");
+            }
+            short version = header.getShort();
+            if (version != VERSION) {
+                throw new InvalidSnapshotException("Unsupported snapshot version " + version);
+            }
+            header.getShort();
+            this.members = header.getLong();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    //Number of members the writer recorded in the header
+    public long getMembers() {
+        return members;
+    }
+
+    //Returns the members of the next block, or an empty list at the end of the file
+    public List<Member> nextBlock() throws IOException {
+        if (position == size) {
+            return List.of();
+        }
+        if (size - position < BLOCK_HEADER_BYTES) {
+            throw new InvalidSnapshotException("Snapshot ends inside a block header at byte " + position);
+        }
+        ByteBuffer header = map(position, BLOCK_HEADER_BYTES);
+        int rows = header.getInt();
+        int length = header.getInt();
+        int checksum = header.getInt();
+        if (rows <= 0 || length < 0 || size - position - BLOCK_HEADER_BYTES < length) {
+            throw new InvalidSnapshotException("Corrupt block header at byte " + position);
+        }
+        ByteBuffer block = map(position + BLOCK_HEADER_BYTES, length);
+        crc.reset();
+        crc.update(block.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            throw new InvalidSnapshotException("Checksum mismatch in block at byte " + position);
+        }
+        long start = position;
+        position += BLOCK_HEADER_BYTES + length;
+        try {
+            return decode(block, rows);
+        } catch (RuntimeException e) {
+            throw new InvalidSnapshotException("Corrupt block at byte " + start, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private List<Member> decode(ByteBuffer block, int rows) {
+        List<Member> members = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Member member = new Member();
+            member.setId(block.getLong());
+            members.add(member);
+        }
+        for (Member member : members) {
+            double price = block.getDouble();
+            member.setPrice(Double.isNaN(price) ? null : price);
+        }
+        for (Member member : members) member.setMemberSince(date(block.getInt()));
+        for (Member member : members) member.setDeadline(date(block.getInt()));
+        for (Member member : members) {
+            byte paid = block.get();
+            member.setHasPaid(paid < 0 ? null : paid == 1);
+        }
+        String[] names = strings(block, rows);
+        String[] emails = strings(block, rows);
+        String[] locations = strings(block, rows);
+        for (int i = 0; i < rows; i++) {
+            Member member = members.get(i);
+            member.setName(names[i]);
+            member.setEmail(emails[i]);
+            member.setLocation(locations[i]);
+        }
+        return members;
+    }
+
+    private static String[] strings(ByteBuffer block, int rows) {
+        int[] lengths = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            lengths[i] = block.getInt();
+        }
+        String[] values = new String[rows];
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < rows; i++) {
+            if (lengths[i] == NULL_LENGTH) {
+                continue;
+            }
+            if (bytes.length < lengths[i]) {
+                bytes = new byte[lengths[i]];
+            }
+            block.get(bytes, 0, lengths[i]);
+            values[i] = new String(bytes, 0, lengths[i], StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    private static LocalDate date(int day) {
+        return day == NULL_DAY ? null : LocalDate.ofEpochDay(day);
+    }
+
+    private ByteBuffer map(long offset, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,173 @@
+package com.springboot.membersdiscount.snapshot;
+
+import com.springboot.membersdiscount.model.Member;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+
+//Writes members to a snapshot file in blocks of up to blockSize rows. Each block stores its rows column by column:
+//ids, prices, member-since and deadline days, paid flags, then name, email and location as length-prefixed UTF-8.
+//The file is written next to its target and moved into place on close, so a half-written snapshot is never read.
+public class MemberSnapshotWriter implements AutoCloseable {
+    static final int MAGIC = 0x4D425253; // "MBRS"
+    static final short VERSION = 1;
+    static final int FILE_HEADER_BYTES = 16;
+    static final int BLOCK_HEADER_BYTES = 12;
+    static final int NULL_DAY = Integer.MIN_VALUE;
+    static final int NULL_LENGTH = -1;
+
+    private final Path target;
+    private final Path temp;
+    private final FileChannel channel;
+    private final int blockSize;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+
+    private final long[] ids;
+    private final double[] prices;
+    private final int[] memberSince;
+    private final int[] deadlines;
+    private final byte[] paid;
+    private final byte[][] names;
+    private final byte[][] emails;
+    private final byte[][] locations;
+    private int rows;
+    private long members;
+    private boolean closed;
+
+    public MemberSnapshotWriter(Path target, int blockSize) throws IOException {
+        this.target = target;
+        this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+        this.blockSize = blockSize;
+        this.ids = new long[blockSize];
+        this.prices = new double[blockSize];
+        this.memberSince = new int[blockSize];
+        this.deadlines = new int[blockSize];
+        this.paid = new byte[blockSize];
+        this.names = new byte[blockSize][];
+        this.emails = new byte[blockSize][];
+        this.locations = new byte[blockSize][];
+        this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        // the member count is filled in on close
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(0);
+        writeBuffer();
+    }
+
+    public void write(Member member) throws IOException {
+        ids[rows] = member.getId();
+        prices[rows] = member.getPrice() == null ? Double.NaN : member.getPrice();
+        memberSince[rows] = day(member.getMemberSince());
+        deadlines[rows] = day(member.getDeadline());
+        paid[rows] = member.getHasPaid() == null ? -1 : (byte) (member.getHasPaid() ? 1 : 0);
+        names[rows] = utf8(member.getName());
+        emails[rows] = utf8(member.getEmail());
+        locations[rows] = utf8(member.getLocation());
+        members++;
+        if (++rows == blockSize) {
+            flushBlock();
+        }
+    }
+
+    public long getMembers() {
+        return members;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (channel) {
+            flushBlock();
+            channel.write(ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(0, members), 8);
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //Drops the partly written file, e.g. when reading the members failed
+    public void abort() throws IOException {
+        closed = true;
+        channel.close();
+        Files.deleteIfExists(temp);
+    }
+
+    private void flushBlock() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        int payload = rows * (Long.BYTES + Double.BYTES + 2 * Integer.BYTES + 1)
+                + stringsBytes(names) + stringsBytes(emails) + stringsBytes(locations);
+        ensureCapacity(BLOCK_HEADER_BYTES + payload);
+        buffer.putInt(rows).putInt(payload).putInt(0);
+        int start = buffer.position();
+        for (int i = 0; i < rows; i++) buffer.putLong(ids[i]);
+        for (int i = 0; i < rows; i++) buffer.putDouble(prices[i]);
+        for (int i = 0; i < rows; i++) buffer.putInt(memberSince[i]);
+        for (int i = 0; i < rows; i++) buffer.putInt(deadlines[i]);
+        buffer.put(paid, 0, rows);
+        putStrings(names);
+        putStrings(emails);
+        putStrings(locations);
+        crc.reset();
+        crc.update(buffer.duplicate().position(start).limit(buffer.position()));
+        buffer.putInt(start - Integer.BYTES, (int) crc.getValue());
+        writeBuffer();
+        rows = 0;
+    }
+
+    private int stringsBytes(byte[][] column) {
+        int bytes = rows * Integer.BYTES;
+        for (int i = 0; i < rows; i++) {
+            if (column[i] != null) {
+                bytes += column[i].length;
+            }
+        }
+        return bytes;
+    }
+
+    private void putStrings(byte[][] column) {
+        for (int i = 0; i < rows; i++) {
+            buffer.putInt(column[i] == null ? NULL_LENGTH : column[i].length);
+        }
+        for (int i = 0; i < rows; i++) {
+            if (column[i] != null) {
+                buffer.put(column[i]);
+            }
+            column[i] = null;
+        }
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (buffer.capacity() < bytes) {
+            buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(bytes) << 1).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static int day(LocalDate date) {
+        return date == null ? NULL_DAY : (int) date.toEpochDay();
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+}
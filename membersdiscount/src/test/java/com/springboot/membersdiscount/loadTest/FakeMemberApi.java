@@ -0,0 +1,101 @@
+package com.springboot.membersdiscount.loadTest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+//In-process stand-in for the external member API: GET streams the configured number of synthetic members as a JSON
+//array after the given latency, POST accepts and discards a body after the same latency. The members are the same
+//on every call for the same seed, so repeated syncs find nothing changed.
+public class FakeMemberApi implements AutoCloseable {
+    public static final String PATH = "/members";
+    private static final String[] LOCATIONS = {"Oslo", "Bergen", "Stockholm", "Trondheim", "Gothenburg"};
+
+    private final int members;
+    private final Duration latency;
+    private final long seed;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicLong requests = new AtomicLong();
+
+    public FakeMemberApi(int members, Duration latency, long seed) throws IOException {
+        this.members = members;
+        this.latency = latency;
+        this.seed = seed;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext(PATH, this::handle);
+        server.start();
+    }
+
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort() + PATH;
+    }
+
+    public int getMembers() {
+        return members;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            try (InputStream body = exchange.getRequestBody()) {
+                body.transferTo(OutputStream.nullOutputStream());
+            }
+            Thread.sleep(latency.toMillis());
+            if ("POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(201, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, 0);
+            try (JsonGenerator json = new JsonFactory().createGenerator(exchange.getResponseBody())) {
+                writeMembers(json);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // a third unpaid, deadlines spread over the next month and a few days back, tenure up to ten years
+    private void writeMembers(JsonGenerator json) throws IOException {
+        var random = new SplittableRandom(seed);
+        LocalDate today = LocalDate.now();
+        json.writeStartArray();
+        for (long id = 1; id <= members; id++) {
+            json.writeStartObject();
+            json.writeNumberField("id", id);
+            json.writeStringField("name", "Member " + id);
+            json.writeStringField("email", "member" + id + "@loadtest.example");
+            json.writeStringField("location", LOCATIONS[random.nextInt(LOCATIONS.length)]);
+            json.writeNumberField("price", 50 + random.nextInt(950));
+            json.writeStringField("memberSince", today.minusDays(random.nextInt(3650)).toString());
+            json.writeBooleanField("hasPaid", random.nextInt(3) != 0);
+            json.writeStringField("deadline", today.plusDays(random.nextInt(-5, 30)).toString());
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
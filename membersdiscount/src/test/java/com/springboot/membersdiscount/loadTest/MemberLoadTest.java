@@ -0,0 +1,129 @@
+package com.springboot.membersdiscount.loadTest;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.springboot.membersdiscount.repository.MemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//End to end load scenarios against an in-process member API, a GreenMail SMTP server and H2, run with
+//mvn test -Pload-test. Scale them with -Dloadtest.members, -Dloadtest.api-latency-ms and -Dloadtest.timeout-minutes.
+@Slf4j
+@Tag("load-test")
+@ActiveProfiles("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class MemberLoadTest {
+    private static final int MEMBERS = Integer.getInteger("loadtest.members", 20000);
+    private static final Duration API_LATENCY = Duration.ofMillis(Long.getLong("loadtest.api-latency-ms", 200));
+    private static final Duration TIMEOUT = Duration.ofMinutes(Long.getLong("loadtest.timeout-minutes", 10));
+    private static final long SEED = 42;
+    private static final List<ScenarioReport> reports = new ArrayList<>();
+
+    private static FakeMemberApi memberApi;
+    private static GreenMail smtp;
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    private ScenarioDriver driver;
+
+    @BeforeAll
+    static void startStandIns() throws IOException {
+        memberApi = new FakeMemberApi(MEMBERS, API_LATENCY, SEED);
+        smtp = new GreenMail(ServerSetupTest.SMTP.dynamicPort())
+                .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication());
+        smtp.start();
+    }
+
+    @DynamicPropertySource
+    static void standInProperties(DynamicPropertyRegistry registry) {
+        registry.add("external.api.get.url", () -> memberApi.url());
+        registry.add("external.api.post.url", () -> memberApi.url());
+        registry.add("spring.mail.port", () -> smtp.getSmtp().getPort());
+    }
+
+    @AfterAll
+    static void report() {
+        log.info("Load test with {} members, {} API latency:\n{}\n{}", MEMBERS, API_LATENCY, ScenarioReport.HEADER,
+                String.join("\n", reports.stream().map(ScenarioReport::toString).toList()));
+        memberApi.close();
+        smtp.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        driver = new ScenarioDriver(rest, TIMEOUT);
+    }
+
+    @DisplayName("should sync every member of the feed into an empty database")
+    @Order(1)
+    @Test
+    void testInitialSync() {
+        var report = driver.runSync("fetchAndSave (initial)", "/members/fetchAndSave", MEMBERS);
+        reports.add(report);
+
+        assertEquals(MEMBERS, report.items());
+        assertEquals(MEMBERS, memberRepository.count());
+    }
+
+    @DisplayName("should get through an unchanged feed again without rewriting members")
+    @Order(2)
+    @Test
+    void testUnchangedSync() {
+        var report = driver.runSync("fetchAndSave (unchanged)", "/members/fetchAndSave", MEMBERS);
+        reports.add(report);
+
+        assertEquals(MEMBERS, report.items());
+        assertEquals(MEMBERS, memberRepository.count());
+    }
+
+    @DisplayName("should deliver a reminder to every unpaid member with an upcoming deadline")
+    @Order(3)
+    @Test
+    void testSendReminders() {
+        int received = smtp.getReceivedMessages().length;
+        var report = driver.runMail("sendReminders", "/members/reminders");
+        reports.add(report);
+
+        assertTrue(report.items() > 0);
+        assertEquals(received + report.items(), smtp.getReceivedMessages().length);
+    }
+
+    @DisplayName("should deliver a discount email to every eligible member")
+    @Order(4)
+    @Test
+    void testSendDiscountToMembers() {
+        int received = smtp.getReceivedMessages().length;
+        var report = driver.runMail("sendDiscountToMembers", "/members/sendDiscountToMembers");
+        reports.add(report);
+
+        assertTrue(report.items() > 0);
+        assertEquals(received + report.items(), smtp.getReceivedMessages().length);
+    }
+}
@@ -0,0 +1,126 @@
+package com.springboot.membersdiscount.loadTest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpMethod;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+//Starts a job through the REST API like an operator would and polls its progress until every item is done. Besides
+//throughput it reports when 50, 95 and 99 percent of the items were done, measured from the start request, so a
+//slow tail shows up even when the average is fine.
+public class ScenarioDriver {
+    private static final long POLL_MILLIS = 10;
+
+    private final TestRestTemplate rest;
+    private final Duration timeout;
+
+    public ScenarioDriver(TestRestTemplate rest, Duration timeout) {
+        this.rest = rest;
+        this.timeout = timeout;
+    }
+
+    public record Progress(long done, long total, boolean finished) {
+    }
+
+    //Items done up to some point since the scenario started
+    private record Sample(long elapsedMillis, long done) {
+    }
+
+    @FunctionalInterface
+    private interface ProgressSource {
+        Progress poll();
+    }
+
+    //Member sync: items are the members the job has written
+    public ScenarioReport runSync(String name, String path, long members) {
+        long started = System.nanoTime();
+        String jobId = request(HttpMethod.GET, path).get("id").asText();
+        return measure(name, started, () -> {
+            JsonNode job = request(HttpMethod.GET, "/jobs/" + jobId);
+            requireNotFailed(job);
+            return new Progress(job.get("processed").asLong(), members, isFinished(job));
+        });
+    }
+
+    //Email campaign: items are the emails the dispatcher sent, failed or skipped; the background job only queues
+    //them, so its result points to the email job that tracks the sending
+    public ScenarioReport runMail(String name, String path) {
+        long started = System.nanoTime();
+        String jobId = request(HttpMethod.POST, path).get("id").asText();
+        String[] emailJobId = new String[1];
+        return measure(name, started, () -> {
+            if (emailJobId[0] == null) {
+                JsonNode job = request(HttpMethod.GET, "/jobs/" + jobId);
+                requireNotFailed(job);
+                if (!isFinished(job)) {
+                    return new Progress(0, 0, false);
+                }
+                emailJobId[0] = job.get("result").get("id").asText();
+            }
+            JsonNode emails = request(HttpMethod.GET, "/members/emailJobs/" + emailJobId[0]);
+            long done = emails.get("sent").asLong() + emails.get("failed").asLong() + emails.get("skipped").asLong();
+            return new Progress(done, emails.get("total").asLong(), "COMPLETED".equals(emails.get("status").asText()));
+        });
+    }
+
+    private ScenarioReport measure(String name, long started, ProgressSource source) {
+        List<Sample> samples = new ArrayList<>();
+        long deadline = started + timeout.toNanos();
+        Progress progress;
+        while (true) {
+            progress = source.poll();
+            samples.add(new Sample(elapsedMillis(started), progress.done()));
+            if (progress.finished()) {
+                break;
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException(name + " did not finish within " + timeout + ", last progress " + progress);
+            }
+            sleep();
+        }
+        long duration = elapsedMillis(started);
+        return new ScenarioReport(name, progress.done(), duration, completedAt(samples, progress.done(), 0.50),
+                completedAt(samples, progress.done(), 0.95), completedAt(samples, progress.done(), 0.99));
+    }
+
+    // elapsed time of the first poll that saw the given share of the items done
+    private static long completedAt(List<Sample> samples, long total, double share) {
+        long items = (long) Math.ceil(total * share);
+        return samples.stream().filter(sample -> sample.done() >= items).findFirst()
+                .map(Sample::elapsedMillis).orElse(0L);
+    }
+
+    private JsonNode request(HttpMethod method, String path) {
+        var response = rest.exchange(path, method, null, JsonNode.class);
+        if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+            throw new IllegalStateException(method + " " + path + " returned " + response.getStatusCode());
+        }
+        return response.getBody();
+    }
+
+    private static boolean isFinished(JsonNode job) {
+        return "COMPLETED".equals(job.get("status").asText());
+    }
+
+    private static void requireNotFailed(JsonNode job) {
+        if ("FAILED".equals(job.get("status").asText())) {
+            throw new IllegalStateException("Job " + job.get("type").asText() + " failed: " + job.get("error").asText());
+        }
+    }
+
+    private static long elapsedMillis(long started) {
+        return (System.nanoTime() - started) / 1_000_000;
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(POLL_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the scenario", e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.springboot.membersdiscount.loadTest;
+
+import java.util.Locale;
+
+//Outcome of one scenario: items done, total duration and the time until 50, 95 and 99 percent of them were done
+public record ScenarioReport(String scenario, long items, long durationMillis, long p50Millis, long p95Millis,
+                             long p99Millis) {
+
+    public static final String HEADER = String.format(Locale.ROOT, "%-24s %8s %10s %10s %8s %8s %8s",
+            "scenario", "items", "ms", "items/s", "p50 ms", "p95 ms", "p99 ms");
+
+    public double throughput() {
+        return durationMillis == 0 ? 0 : items * 1000.0 / durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%-24s %8d %10d %10.1f %8d %8d %8d",
+                scenario, items, durationMillis, throughput(), p50Millis, p95Millis, p99Millis);
+    }
+}
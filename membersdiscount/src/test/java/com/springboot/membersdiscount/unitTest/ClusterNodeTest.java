@@ -0,0 +1,40 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.springboot.membersdiscount.service.ClusterNode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusterNodeTest {
+
+    @DisplayName("should give every member ID to exactly one shard, with even shares of a sequential range")
+    @Test
+    void testShardsSplitMembers() {
+        var shards = IntStream.range(0, 4).mapToObj(index -> new ClusterNode("node-" + index, 4, index)).toList();
+        List<Long> ids = LongStream.rangeClosed(1, 10_000).boxed().toList();
+
+        int[] sizes = shards.stream().mapToInt(shard -> shard.ownedOnly(ids, Function.identity()).size()).toArray();
+
+        assertEquals(10_000, IntStream.of(sizes).sum());
+        assertTrue(IntStream.of(sizes).allMatch(size -> size > 2_300 && size < 2_700));
+        assertTrue(ids.stream().allMatch(id -> shards.stream().filter(shard -> shard.owns(id)).count() == 1));
+    }
+
+    @DisplayName("should keep names and members unchanged when the cluster is not sharded")
+    @Test
+    void testNotSharded() {
+        var node = new ClusterNode("node-1", 1, 0);
+        var ids = List.of(1L, 2L, 3L);
+
+        assertSame(ids, node.ownedOnly(ids, Function.identity()));
+        assertEquals("reminders-2025-01-01", node.perShard("reminders-2025-01-01"));
+        assertEquals("reminders-2025-01-01#2/3", new ClusterNode("node-1", 3, 2).perShard("reminders-2025-01-01"));
+        assertThrows(IllegalArgumentException.class, () -> new ClusterNode("node-1", 3, 3));
+    }
+}
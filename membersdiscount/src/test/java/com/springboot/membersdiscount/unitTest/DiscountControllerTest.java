@@ -2,20 +2,42 @@ package com.springboot.membersdiscount.unitTest;
 
 
 import com.springboot.membersdiscount.controller.DiscountController;
+import com.springboot.membersdiscount.exception.ExportIncompleteException;
+import com.springboot.membersdiscount.exception.JobAlreadyRunningException;
+import com.springboot.membersdiscount.exception.SnapshotNotFoundException;
+import com.springboot.membersdiscount.model.BackgroundJob;
+import com.springboot.membersdiscount.model.DiscountedMember;
 import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.model.MemberSlice;
+import com.springboot.membersdiscount.model.PaymentImportResult;
+import com.springboot.membersdiscount.model.DiscountRule;
+import com.springboot.membersdiscount.service.DiscountRuleEngine;
+import com.springboot.membersdiscount.service.DiscountRules;
 import com.springboot.membersdiscount.service.DiscountService;
+import com.springboot.membersdiscount.service.EmailDispatcher;
+import com.springboot.membersdiscount.service.MemberSnapshotService;
+import com.springboot.membersdiscount.service.PaymentEventReader;
+import com.springboot.membersdiscount.service.PaymentEventService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -29,6 +51,18 @@ public class DiscountControllerTest {
      @MockitoBean
     private DiscountService discountService;
 
+    @MockitoBean
+    private EmailDispatcher emailDispatcher;
+
+    @MockitoBean
+    private DiscountRuleEngine discountRuleEngine;
+
+    @MockitoBean
+    private MemberSnapshotService memberSnapshotService;
+
+    @MockitoBean
+    private PaymentEventService paymentEventService;
+
     private Member member1, member2;
 
     @BeforeEach
@@ -38,14 +72,14 @@ public class DiscountControllerTest {
         member1.setName("Ola");
         member1.setPrice(100.0);
         member1.setHasPaid(true);
-        member1.setMemberSince(LocalDate.now().minusYears(4).toString());
+        member1.setMemberSince(LocalDate.now().minusYears(4));
 
         member2 = new Member();
         member2.setId(2L);
         member2.setName("Anne");
         member2.setPrice(120.0);
         member2.setHasPaid(false);
-        member2.setMemberSince(LocalDate.now().minusYears(5).toString());
+        member2.setMemberSince(LocalDate.now().minusYears(5));
     }
 
     @Test
@@ -64,30 +98,100 @@ public class DiscountControllerTest {
     }
 
     @Test
-    @DisplayName("GET /members/fetchAndSave should fetch and save members")
+    @DisplayName("GET /members/fetchAndSave should start fetching members and return the job")
     void testFetchAndSaveMembers() throws Exception {
-        doNothing().when(discountService).fetchAndSaveAllMembers();
+        var job = new BackgroundJob(DiscountService.JOB_FETCH_MEMBERS, "api");
+        when(discountService.startFetchAndSaveAllMembers()).thenReturn(job);
 
         mockMvc.perform(get("/members/fetchAndSave"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value(job.getId()))
+                .andExpect(jsonPath("$.type").value("fetchAndSaveAllMembers"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+
+        verify(discountService, times(1)).startFetchAndSaveAllMembers();
+    }
+
+    @Test
+    @DisplayName("GET /members/fetchAndSave should return 409 while a sync is running")
+    void testFetchAndSaveMembersConflict() throws Exception {
+        when(discountService.startFetchAndSaveAllMembers())
+                .thenThrow(new JobAlreadyRunningException("A fetchAndSaveAllMembers job is already running", "job-1"));
+
+        mockMvc.perform(get("/members/fetchAndSave"))
+                .andExpect(status().isConflict())
+                .andExpect(header().string("Location", "/jobs/job-1"))
+                .andExpect(jsonPath("$.error").value("A fetchAndSaveAllMembers job is already running"));
+    }
+
+    @Test
+    @DisplayName("POST /members/payments should apply CSV payment events and return the summary")
+    void testImportPayments() throws Exception {
+        when(paymentEventService.importPayments(any(), eq(PaymentEventReader.Format.CSV)))
+                .thenReturn(new PaymentImportResult(3, 0, 1, 1, 1, 0, 5));
+
+        mockMvc.perform(post("/members/payments").contentType("text/csv").content("memberId\n1\n2\n2\n"))
                 .andExpect(status().isOk())
-                .andExpect(content().string("Fetched and saved members from external API"));
+                .andExpect(jsonPath("$.events").value(3))
+                .andExpect(jsonPath("$.duplicates").value(1))
+                .andExpect(jsonPath("$.markedPaid").value(1))
+                .andExpect(jsonPath("$.alreadyPaid").value(1));
 
-        verify(discountService, times(1)).fetchAndSaveAllMembers();
+        verify(paymentEventService).importPayments(any(), eq(PaymentEventReader.Format.CSV));
+    }
+
+    @Test
+    @DisplayName("POST /members/payments should read CSV without a header when the content type says header=absent")
+    void testImportPaymentsWithoutHeader() throws Exception {
+        when(paymentEventService.importPayments(any(), eq(PaymentEventReader.Format.CSV_WITHOUT_HEADER)))
+                .thenReturn(new PaymentImportResult(1, 0, 0, 1, 0, 0, 5));
+
+        mockMvc.perform(post("/members/payments").contentType("text/csv;header=absent").content("1\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.markedPaid").value(1));
+
+        verify(paymentEventService).importPayments(any(), eq(PaymentEventReader.Format.CSV_WITHOUT_HEADER));
+    }
+
+    @Test
+    @DisplayName("POST /members/snapshots/{name}/import should return 404 for an unknown snapshot")
+    void testImportUnknownSnapshot() throws Exception {
+        when(memberSnapshotService.startImport("missing"))
+                .thenThrow(new SnapshotNotFoundException("No snapshot found with name missing"));
+
+        mockMvc.perform(post("/members/snapshots/missing/import"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("No snapshot found with name missing"));
     }
 
     @Test
     @DisplayName("POST /members/eligibleFordiscount should send discounted members")
     void testSendDiscount() throws Exception {
-        when(discountService.sendDiscountedMembers()).thenReturn(List.of(member1));
+        when(discountService.sendDiscountedMembers())
+                .thenReturn(List.of(new DiscountedMember(1L, "Ola", "ola@example.com", "Oslo", 100.0, 85.0, 15)));
 
         mockMvc.perform(post("/members/eligibleFordiscount"))
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.length()").value(1))
-                .andExpect(jsonPath("$[0].name").value("Ola"));
+                .andExpect(jsonPath("$[0].name").value("Ola"))
+                .andExpect(jsonPath("$[0].originalPrice").value(100.0))
+                .andExpect(jsonPath("$[0].price").value(85.0));
 
         verify(discountService, times(1)).sendDiscountedMembers();
     }
 
+    @Test
+    @DisplayName("POST /members/eligibleFordiscount should return 502 with the members that were not delivered")
+    void testSendDiscountIncomplete() throws Exception {
+        when(discountService.sendDiscountedMembers())
+                .thenThrow(new ExportIncompleteException("Export incomplete", List.of(3L, 4L)));
+
+        mockMvc.perform(post("/members/eligibleFordiscount"))
+                .andExpect(status().isBadGateway())
+                .andExpect(jsonPath("$.error").value("Export incomplete"))
+                .andExpect(jsonPath("$.undeliveredIds[1]").value(4));
+    }
+
     @Test
     @DisplayName("GET /members/unpaidMembers should return unpaid members")
     void testGetMembersWhoHaveNotPaid() throws Exception {
@@ -102,27 +206,105 @@ public class DiscountControllerTest {
     }
 
     @Test
-    @DisplayName("POST /members/reminders should send reminders")
+    @DisplayName("POST /members/reminders should queue reminders and return the job")
     void testSendReminders() throws Exception {
-        doNothing().when(discountService).sendReminders();
+        var job = new BackgroundJob(DiscountService.JOB_REMINDERS, "api");
+        job.start();
+        job.setTotal(3);
+        when(discountService.startSendReminders()).thenReturn(job);
 
         mockMvc.perform(post("/members/reminders"))
-                .andExpect(status().isOk())
-                .andExpect(content().string("Reminders sent successfully!"));
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value(job.getId()))
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.status").value("RUNNING"));
 
-        verify(discountService, times(1)).sendReminders();
+        verify(discountService, times(1)).startSendReminders();
     }
 
     @Test
-    @DisplayName("POST /members/sendDiscountToMembers should send discount emails")
+    @DisplayName("POST /members/sendDiscountToMembers should queue discount emails and return the job")
     void testSendDiscountToMembers() throws Exception {
-        doNothing().when(discountService).sendDiscountToMembers();
+        var job = new BackgroundJob(DiscountService.JOB_DISCOUNT_EMAILS, "api");
+        when(discountService.startSendDiscountToMembers()).thenReturn(job);
 
         mockMvc.perform(post("/members/sendDiscountToMembers"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value(job.getId()))
+                .andExpect(jsonPath("$.type").value("sendDiscountToMembers"));
+
+        verify(discountService, times(1)).startSendDiscountToMembers();
+    }
+
+    @Test
+    @DisplayName("GET /members/emailJobs/{jobId} should return 404 for an unknown job")
+    void testGetUnknownEmailJob() throws Exception {
+        when(emailDispatcher.getJob("missing")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/members/emailJobs/missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("GET /members/page should return one page of members")
+    void testGetMembersPage() throws Exception {
+        when(discountService.fetchMembersPage(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(member1), PageRequest.of(0, 1), 2));
+
+        mockMvc.perform(get("/members/page").param("page", "0").param("size", "1"))
                 .andExpect(status().isOk())
-                .andExpect(content().string("Emails have been successfully sent to eligible members!"));
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].name").value("Ola"))
+                .andExpect(jsonPath("$.page.totalElements").value(2))
+                .andExpect(jsonPath("$.page.totalPages").value(2));
 
-        verify(discountService, times(1)).sendDiscountToMembers();
+        verify(discountService, times(1)).fetchMembersPage(PageRequest.of(0, 1, Sort.by("id")));
     }
-}
 
+    @Test
+    @DisplayName("GET /members/cursor should return the members after the cursor")
+    void testGetMembersAfter() throws Exception {
+        when(discountService.fetchMembersAfter(1L, 1)).thenReturn(new MemberSlice(List.of(member2), 2L));
+
+        mockMvc.perform(get("/members/cursor").param("after", "1").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.members[0].name").value("Anne"))
+                .andExpect(jsonPath("$.nextCursor").value(2));
+
+        verify(discountService, times(1)).fetchMembersAfter(1L, 1);
+    }
+
+    @Test
+    @DisplayName("GET /members/stream should write members as newline-delimited JSON")
+    void testStreamMembers() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Member> consumer = invocation.getArgument(0);
+            consumer.accept(member1);
+            consumer.accept(member2);
+            return null;
+        }).when(discountService).streamAllMembers(any());
+
+        var result = mockMvc.perform(get("/members/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        var lines = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().lines().toList();
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"name\":\"Ola\""));
+        assertTrue(lines.get(1).contains("\"name\":\"Anne\""));
+    }
+
+    @Test
+    @DisplayName("POST /members/discountRules/reload should return the reloaded rules")
+    void testReloadDiscountRules() throws Exception {
+        when(discountRuleEngine.reload()).thenReturn(
+                DiscountRules.compile(List.of(new DiscountRule("loyalty", 3, true, null, null, null, 15))));
+
+        mockMvc.perform(post("/members/discountRules/reload"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("loyalty"))
+                .andExpect(jsonPath("$[0].percent").value(15.0));
+    }
+}
@@ -0,0 +1,101 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.membersdiscount.exception.InvalidDiscountRulesException;
+import com.springboot.membersdiscount.model.DiscountRule;
+import com.springboot.membersdiscount.model.DiscountRulesReloadedEvent;
+import com.springboot.membersdiscount.model.MemberPriceRow;
+import com.springboot.membersdiscount.service.DiscountRuleEngine;
+import com.springboot.membersdiscount.service.DiscountRules;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class DiscountRulesTest {
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 1);
+
+    private final DiscountRules tiers = DiscountRules.compile(List.of(
+            new DiscountRule("oslo-premium", 3, true, List.of("Oslo"), 500.0, null, 25),
+            new DiscountRule("veteran", 10, true, null, null, null, 20),
+            new DiscountRule("loyalty", 3, true, null, null, null, 15),
+            new DiscountRule("welcome", null, false, null, null, 50.0, 5)));
+
+    private MemberPriceRow row(String location, double price, boolean paid, LocalDate memberSince) {
+        return new MemberPriceRow(1L, "Ola", "ola@example.com", location, price, memberSince, paid);
+    }
+
+    @DisplayName("should apply the first rule the member matches")
+    @Test
+    void testFirstMatchWins() {
+        var evaluator = tiers.evaluator(TODAY);
+
+        assertEquals(25, evaluator.apply(row("oslo ", 600, true, TODAY.minusYears(4))).discountPercent());
+        assertEquals(20, evaluator.apply(row("Oslo", 100, true, TODAY.minusYears(11))).discountPercent());
+        assertEquals(15, evaluator.apply(row("Bergen", 600, true, TODAY.minusYears(4))).discountPercent());
+        assertEquals(5, evaluator.apply(row("Bergen", 40, false, null)).discountPercent());
+        assertNull(evaluator.apply(row("Bergen", 100, false, TODAY.minusYears(4))));
+        assertNull(evaluator.apply(row("Bergen", 100, true, TODAY.minusYears(3))));
+    }
+
+    @DisplayName("should compute the discounted price and the candidate filter")
+    @Test
+    void testDiscountedPriceAndCandidates() {
+        var discounted = tiers.evaluator(TODAY).apply(row("Bergen", 200, true, TODAY.minusYears(4)));
+
+        assertEquals(200.0, discounted.originalPrice());
+        assertEquals(170.0, discounted.discountedPrice());
+        assertFalse(tiers.paidOnly());
+        assertEquals(0, tiers.candidateTenureYears());
+    }
+
+    @DisplayName("should reject invalid rules")
+    @Test
+    void testInvalidRules() {
+        assertThrows(InvalidDiscountRulesException.class, () -> DiscountRules.compile(List.of(
+                new DiscountRule("free", null, null, null, null, null, 150))));
+        assertThrows(InvalidDiscountRulesException.class, () -> DiscountRules.compile(List.of(
+                new DiscountRule("band", null, null, null, 100.0, 50.0, 10))));
+        assertThrows(InvalidDiscountRulesException.class, () -> DiscountRules.compile(List.of(
+                new DiscountRule("a", null, null, null, null, null, 10), new DiscountRule("a", null, null, null, null, null, 10))));
+    }
+
+    @DisplayName("should hot-reload a changed rules file and keep the rules when the new file is broken")
+    @Test
+    void testReloadIfModified(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("rules.json");
+        Files.writeString(file, "[{\"name\":\"loyalty\",\"minTenureYears\":3,\"percent\":15}]");
+        var publisher = mock(ApplicationEventPublisher.class);
+        var engine = new DiscountRuleEngine(new DefaultResourceLoader(), new ObjectMapper(), publisher);
+        ReflectionTestUtils.setField(engine, "rulesLocation", file.toUri().toString());
+        engine.load();
+
+        engine.reloadIfModified();
+        verify(publisher, never()).publishEvent(any());
+
+        Files.writeString(file, "[{\"name\":\"loyalty\",\"minTenureYears\":2,\"percent\":10}]");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(10)));
+        engine.reloadIfModified();
+        assertEquals(10, engine.rules().definitions().get(0).percent());
+        verify(publisher).publishEvent(new DiscountRulesReloadedEvent(1));
+
+        Files.writeString(file, "[{\"name\":\"loyalty\",\"percent\":");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(20)));
+        engine.reloadIfModified();
+        assertEquals(10, engine.rules().definitions().get(0).percent());
+    }
+}
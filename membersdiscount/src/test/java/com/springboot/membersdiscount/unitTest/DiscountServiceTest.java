@@ -1,22 +1,70 @@
 package com.springboot.membersdiscount.unitTest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.membersdiscount.config.AppMetrics;
+import com.springboot.membersdiscount.config.TaskExecutors;
+import com.springboot.membersdiscount.email.EmailTemplates;
+import com.springboot.membersdiscount.model.BackgroundJob;
+import com.springboot.membersdiscount.model.DiscountedMember;
+import com.springboot.membersdiscount.model.EmailDispatchJob;
+import com.springboot.membersdiscount.model.MarkPaidResult;
 import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.model.MemberPriceRow;
+import com.springboot.membersdiscount.model.MembersChangedEvent;
+import com.springboot.membersdiscount.model.SyncWatermark;
+import com.springboot.membersdiscount.model.UpsertResult;
+import com.springboot.membersdiscount.repository.ClusterLockRepository;
+import com.springboot.membersdiscount.repository.MemberBulkRepository;
 import com.springboot.membersdiscount.repository.MemberRepository;
+import com.springboot.membersdiscount.repository.SyncWatermarkRepository;
+import com.springboot.membersdiscount.model.DiscountRule;
+import com.springboot.membersdiscount.service.ClusterNode;
+import com.springboot.membersdiscount.service.DiscountRuleEngine;
+import com.springboot.membersdiscount.service.DiscountRules;
 import com.springboot.membersdiscount.service.DiscountService;
+import com.springboot.membersdiscount.service.EligibilitySnapshot;
+import com.springboot.membersdiscount.service.EmailOutboxService;
+import com.springboot.membersdiscount.service.JobService;
+import com.springboot.membersdiscount.service.MemberFeedReader;
+import com.springboot.membersdiscount.service.MemberIngestor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 
+import static com.springboot.membersdiscount.email.EmailTemplet.*;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 public class DiscountServiceTest {
@@ -26,18 +74,74 @@ public class DiscountServiceTest {
     @Mock
     private MemberRepository memberRepository;
 
+    @Mock
+    private MemberBulkRepository memberBulkRepository;
+
+    @Mock
+    private SyncWatermarkRepository syncWatermarkRepository;
+
+    @Mock
+    private EligibilitySnapshot eligibilitySnapshot;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private DiscountRuleEngine discountRuleEngine;
+
+    @Mock
+    private EmailOutboxService emailOutboxService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private EmailTemplates emailTemplates = new EmailTemplates("en-US", "USD", "");
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private AppMetrics appMetrics = new AppMetrics(meterRegistry);
+
+    @Spy
+    private MemberFeedReader memberFeedReader = new MemberFeedReader(new ObjectMapper().findAndRegisterModules());
+
+    @Spy
+    private MemberIngestor memberIngestor = new MemberIngestor(new TaskExecutors(false));
+
+    @Spy
+    private ClusterNode clusterNode = new ClusterNode("node-1", 1, 0);
+
+    @Spy
+    private JobService jobService = new JobService(mock(ClusterLockRepository.class), clusterNode,
+            new TaskExecutors(false));
+
     @InjectMocks
     private DiscountService discountService;
 
     private Member member1, member2, member3;
     @BeforeEach
     public void setUp() {
+        ReflectionTestUtils.setField(memberIngestor, "parallelism", 2);
+        ReflectionTestUtils.setField(memberIngestor, "connectionPoolSize", 10);
+        ReflectionTestUtils.setField(memberIngestor, "maxAttempts", 1);
+        memberIngestor.start();
+        ReflectionTestUtils.setField(jobService, "workers", 1);
+        jobService.start();
+        ReflectionTestUtils.setField(discountService, "ingestionChunkSize", 1000);
+        ReflectionTestUtils.setField(discountService, "reminderDaysAhead", 3);
+        ReflectionTestUtils.setField(discountService, "maxCatchUpDays", 7);
+
+        var rules = DiscountRules.compile(List.of(new DiscountRule("loyalty", 3, true, null, null, null, 15)));
+        lenient().when(discountRuleEngine.rules()).thenReturn(rules);
+        lenient().when(discountRuleEngine.evaluator()).thenReturn(rules.evaluator(LocalDate.now()));
+
         member1 = new Member();
         member1.setId(1L);
         member1.setName("Ola");
         member1.setPrice(100.0);
         member1.setHasPaid(true);
-        member1.setMemberSince(LocalDate.now().minusYears(4).toString());
+        member1.setMemberSince(LocalDate.now().minusYears(4));
 
 
         member2 = new Member();
@@ -45,7 +149,7 @@ public class DiscountServiceTest {
         member2.setName("Anne");
         member2.setPrice(120.0);
         member2.setHasPaid(false);
-        member2.setMemberSince(LocalDate.now().minusYears(5).toString());
+        member2.setMemberSince(LocalDate.now().minusYears(5));
 
 
         member3 = new Member();
@@ -53,7 +157,13 @@ public class DiscountServiceTest {
         member3.setName("Tor");
         member3.setPrice(200.0);
         member3.setHasPaid(true);
-        member3.setMemberSince(LocalDate.now().minusYears(2).toString());
+        member3.setMemberSince(LocalDate.now().minusYears(2));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        memberIngestor.stop();
+        jobService.stop();
     }
 
     @DisplayName("should return list of members from the database")
@@ -90,12 +200,35 @@ public class DiscountServiceTest {
     @DisplayName("should return only members eligible for discount")
     @Test
     public void testEligibleDiscountedMembers() {
-        when(memberRepository.findAll()).thenReturn(List.of(member1, member2, member3));
+        when(memberRepository.findPricesJoinedBefore(LocalDate.now().minusYears(3), true))
+                .thenReturn(List.of(MemberPriceRow.of(member1), MemberPriceRow.of(member3)));
         var eligible = discountService.getEligibleDiscountedMembers();
 
         assertEquals(1, eligible.size());
-        assertEquals(member1.getId(), eligible.get(0).getId());
-        assertEquals(85.0, eligible.get(0).getPrice());
+        assertEquals(member1.getId(), eligible.get(0).id());
+        assertEquals(100.0, eligible.get(0).originalPrice());
+        assertEquals(85.0, eligible.get(0).discountedPrice());
+        assertEquals(100.0, member1.getPrice());
+    }
+
+    @DisplayName("should evaluate and sort the eligible members once per sort order and snapshot version")
+    @Test
+    public void testEligiblePagesReuseSortedView() {
+        var cheap = new MemberPriceRow(5L, "Per", "per@example.com", "Oslo", 50.0, LocalDate.now().minusYears(6), true);
+        when(eligibilitySnapshot.isReady()).thenReturn(true);
+        when(eligibilitySnapshot.version()).thenReturn(1L);
+        when(eligibilitySnapshot.members()).thenReturn(List.of(MemberPriceRow.of(member1), cheap));
+        var byPrice = PageRequest.of(0, 1, Sort.by("price"));
+
+        assertEquals(List.of(5L), discountService.getEligibleDiscountedMembers(byPrice).map(DiscountedMember::id).toList());
+        var second = discountService.getEligibleDiscountedMembers(byPrice.next());
+        assertEquals(List.of(member1.getId()), second.map(DiscountedMember::id).toList());
+        assertEquals(2, second.getTotalElements());
+        verify(eligibilitySnapshot, times(1)).members();
+
+        when(eligibilitySnapshot.version()).thenReturn(2L);
+        discountService.getEligibleDiscountedMembers(byPrice);
+        verify(eligibilitySnapshot, times(2)).members();
     }
 
     @DisplayName("should return members with deadlines within 3 days")
@@ -106,13 +239,192 @@ public class DiscountServiceTest {
         m.setHasPaid(false);
         m.setDeadline(LocalDate.now().plusDays(2));
 
-        when(memberRepository.findAll()).thenReturn(List.of(m));
+        when(memberRepository.findByHasPaidFalseAndDeadlineBetween(LocalDate.now(), LocalDate.now().plusDays(3)))
+                .thenReturn(List.of(m));
 
         var upcoming = discountService.getMembersWithUpcomingDeadline();
         assertEquals(1, upcoming.size());
         assertEquals(10L, upcoming.get(0).getId());
     }
 
+    @DisplayName("should remind the upcoming deadlines and record the run")
+    @Test
+    public void testSendReminders() {
+        LocalDate today = LocalDate.now();
+        member2.setDeadline(today.plusDays(1));
+        var watermark = new SyncWatermark("reminders");
+        watermark.setLastSyncAt(today.minusDays(1).atStartOfDay());
+        when(syncWatermarkRepository.findById("reminders")).thenReturn(Optional.of(watermark));
+        when(memberRepository.findByHasPaidFalseAndDeadlineBetween(today, today.plusDays(3))).thenReturn(List.of(member2));
+
+        discountService.sendReminders(new BackgroundJob(DiscountService.JOB_REMINDERS, "api"));
+
+        verify(emailOutboxService).send(eq("reminders-" + today), argThat(emails -> emails.size() == 1));
+        assertEquals(today.atStartOfDay(), watermark.getLastSyncAt());
+        verify(syncWatermarkRepository).save(watermark);
+    }
+
+    @DisplayName("should time the scheduled reminders until the dispatcher has sent them, not until they were queued")
+    @Test
+    public void testCheckDeadlinesTimesDispatch() {
+        var dispatch = new EmailDispatchJob("reminders-" + LocalDate.now());
+        when(emailOutboxService.send(any(), anyList())).thenReturn(dispatch);
+
+        discountService.checkDeadlines();
+        assertNull(meterRegistry.find("members.job.duration").tag("job", "checkDeadlines").timer());
+
+        dispatch.queuingFinished();
+        assertEquals(1, meterRegistry.get("members.job.duration").tag("job", "checkDeadlines").timer().count());
+    }
+
+    @DisplayName("should also remind deadlines that passed while reminder runs were missed, up to the catch-up limit")
+    @Test
+    public void testSendRemindersCatchUp() {
+        LocalDate today = LocalDate.now();
+        var watermark = new SyncWatermark("reminders");
+        watermark.setLastSyncAt(today.minusDays(8).atStartOfDay());
+        when(syncWatermarkRepository.findById("reminders")).thenReturn(Optional.of(watermark));
+
+        discountService.sendReminders(new BackgroundJob(DiscountService.JOB_REMINDERS, "api"));
+        // the run 8 days ago covered deadlines up to 5 days ago
+        verify(memberRepository).findByHasPaidFalseAndDeadlineBetween(today.minusDays(4), today.plusDays(3));
+
+        watermark.setLastSyncAt(today.minusDays(30).atStartOfDay());
+        discountService.sendReminders(new BackgroundJob(DiscountService.JOB_REMINDERS, "api"));
+        verify(memberRepository).findByHasPaidFalseAndDeadlineBetween(today.minusDays(7), today.plusDays(3));
+    }
+
+    @DisplayName("should send the overdue reminder to members whose deadline already passed")
+    @Test
+    public void testSendRemindersOverdue() {
+        LocalDate today = LocalDate.now();
+        member1.setHasPaid(false);
+        member1.setDeadline(today.minusDays(2));
+        member2.setDeadline(today);
+        var watermark = new SyncWatermark("reminders");
+        watermark.setLastSyncAt(today.minusDays(8).atStartOfDay());
+        when(syncWatermarkRepository.findById("reminders")).thenReturn(Optional.of(watermark));
+        when(memberRepository.findByHasPaidFalseAndDeadlineBetween(today.minusDays(4), today.plusDays(3)))
+                .thenReturn(List.of(member1, member2));
+
+        discountService.sendReminders(new BackgroundJob(DiscountService.JOB_REMINDERS, "api"));
+
+        verify(emailOutboxService).send(eq("reminders-" + today), argThat(emails -> emails.size() == 2
+                && emails.get(0).getSubject().equals(OVERDUE_REMINDER_SUBJECT)
+                && emails.get(1).getSubject().equals(REMINDER_SUBJECT)));
+    }
+
+    @DisplayName("should mark only the unpaid members as paid, tell already paid and unknown IDs apart and publish the changes")
+    @Test
+    public void testMarkPaid() {
+        member2.setFingerprint(42L);
+        when(memberRepository.countByIdIn(List.of(1L, 2L, 99L))).thenReturn(2L);
+        when(memberRepository.findByHasPaidFalseAndIdIn(List.of(1L, 2L, 99L))).thenReturn(List.of(member2));
+        when(memberRepository.markPaid(List.of(2L))).thenReturn(1);
+
+        assertEquals(new MarkPaidResult(1, 1, 1), discountService.markPaid(List.of(1L, 2L, 99L)));
+        assertTrue(member2.getHasPaid());
+        assertNull(member2.getFingerprint());
+        verify(eventPublisher).publishEvent(argThat((Object event) ->
+                event instanceof MembersChangedEvent changed && changed.members().equals(List.of(member2))));
+
+        when(memberRepository.countByIdIn(List.of(2L))).thenReturn(1L);
+        when(memberRepository.findByHasPaidFalseAndIdIn(List.of(2L))).thenReturn(List.of());
+        assertEquals(new MarkPaidResult(0, 1, 0), discountService.markPaid(List.of(2L)));
+        verify(memberRepository, times(1)).markPaid(anyCollection());
+    }
+
+    @DisplayName("should upsert all fetched members as one chunk")
+    @Test
+    public void testFetchAndSaveAllMembers() {
+        ReflectionTestUtils.setField(discountService, "externalApiGetUrl", "http://members.test/data");
+        when(restTemplate.getForObject("http://members.test/data", Member[].class)).thenReturn(new Member[]{member1, member2, member3});
+        when(memberBulkRepository.upsert(anyList())).thenReturn(new UpsertResult(1, 2, 0));
+
+        discountService.fetchAndSaveAllMembers();
+
+        verify(memberBulkRepository, times(1)).upsert(List.of(member1, member2, member3));
+        assertEquals(1, meterRegistry.get("members.job.duration").tag("job", "fetchAndSaveAllMembers").timer().count());
+        assertEquals(2.0, meterRegistry.get("members.upserted").tag("result", "updated").counter().count());
+    }
+
+    @DisplayName("should ask for changes since the last sync and stop on 304 Not Modified")
+    @Test
+    public void testFetchChangedMembersNotModified() throws Exception {
+        ReflectionTestUtils.setField(discountService, "externalApiGetUrl", "http://members.test/data");
+        ReflectionTestUtils.setField(discountService, "deltaParam", "updatedSince");
+        ReflectionTestUtils.setField(discountService, "deltaOverlap", Duration.ZERO);
+        var watermark = new SyncWatermark("members-api");
+        watermark.setLastSyncAt(LocalDateTime.of(2025, 1, 1, 12, 0));
+        watermark.setEtag("\"v1\"");
+        when(syncWatermarkRepository.findById("members-api")).thenReturn(Optional.of(watermark));
+
+        var headers = new HttpHeaders();
+        var request = mock(ClientHttpRequest.class);
+        when(request.getHeaders()).thenReturn(headers);
+        var response = mock(ClientHttpResponse.class);
+        when(response.getStatusCode()).thenReturn(HttpStatus.NOT_MODIFIED);
+        when(restTemplate.execute(any(URI.class), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class)))
+                .thenAnswer(invocation -> {
+                    URI uri = invocation.getArgument(0);
+                    assertTrue(uri.getQuery().startsWith("updatedSince=2025-01-01T12:00"));
+                    invocation.<RequestCallback>getArgument(2).doWithRequest(request);
+                    return invocation.<ResponseExtractor<?>>getArgument(3).extractData(response);
+                });
+
+        discountService.fetchChangedMembers();
+
+        assertEquals(List.of("\"v1\""), headers.getIfNoneMatch());
+        assertEquals(LocalDateTime.of(2025, 1, 1, 12, 0), watermark.getLastSyncAt());
+        assertNotNull(watermark.getLastCheckedAt());
+        verify(syncWatermarkRepository).save(watermark);
+        verifyNoInteractions(memberBulkRepository);
+    }
+
+    @DisplayName("should keep the watermark and ETag when members of the delta failed, so they are fetched again")
+    @Test
+    public void testFetchChangedMembersKeepsWatermarkOnFailure() throws Exception {
+        ReflectionTestUtils.setField(discountService, "externalApiGetUrl", "http://members.test/data");
+        ReflectionTestUtils.setField(discountService, "deltaParam", "");
+        var watermark = new SyncWatermark("members-api");
+        watermark.setLastSyncAt(LocalDateTime.of(2025, 1, 1, 12, 0));
+        watermark.setEtag("\"v1\"");
+        when(syncWatermarkRepository.findById("members-api")).thenReturn(Optional.of(watermark));
+        when(memberBulkRepository.upsert(anyList())).thenReturn(new UpsertResult(1, 0, 0));
+
+        var headers = new HttpHeaders();
+        headers.setETag("\"v2\"");
+        var response = mock(ClientHttpResponse.class);
+        when(response.getStatusCode()).thenReturn(HttpStatus.OK);
+        when(response.getHeaders()).thenReturn(headers);
+        // the second element is not a member and counts as failed
+        when(response.getBody()).thenReturn(new ByteArrayInputStream(
+                "[{\"id\": 1, \"name\": \"Ola\"}, 42]".getBytes(StandardCharsets.UTF_8)));
+        when(restTemplate.execute(any(URI.class), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class)))
+                .thenAnswer(invocation -> invocation.<ResponseExtractor<?>>getArgument(3).extractData(response));
+
+        var totals = discountService.fetchChangedMembers(new BackgroundJob(DiscountService.JOB_FETCH_CHANGES, "api"));
+
+        assertEquals(1, totals.failed());
+        assertEquals(LocalDateTime.of(2025, 1, 1, 12, 0), watermark.getLastSyncAt());
+        assertEquals("\"v1\"", watermark.getEtag());
+        assertNotNull(watermark.getLastCheckedAt());
+        verify(syncWatermarkRepository).save(watermark);
+    }
+
+    @DisplayName("should default hasPaid to false before saving a member")
+    @Test
+    public void testUpdateOrSaveMemberDefaultsHasPaid() {
+        Member m = new Member();
+        m.setId(20L);
+        when(memberBulkRepository.upsert(anyList())).thenReturn(new UpsertResult(1, 0, 0));
+
+        discountService.updateOrSaveMember(m);
+
+        assertFalse(m.getHasPaid());
+        verify(memberBulkRepository, times(1)).upsert(List.of(m));
+    }
+
 
 
 }
@@ -0,0 +1,126 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.springboot.membersdiscount.model.DiscountRule;
+import com.springboot.membersdiscount.model.DiscountRulesReloadedEvent;
+import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.model.MemberPriceRow;
+import com.springboot.membersdiscount.model.MembersChangedEvent;
+import com.springboot.membersdiscount.repository.MemberRepository;
+import com.springboot.membersdiscount.service.DiscountRuleEngine;
+import com.springboot.membersdiscount.service.DiscountRules;
+import com.springboot.membersdiscount.service.EligibilitySnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EligibilitySnapshotTest {
+    @Mock
+    private MemberRepository memberRepository;
+
+    @Mock
+    private DiscountRuleEngine discountRuleEngine;
+
+    @InjectMocks
+    private EligibilitySnapshot eligibilitySnapshot;
+
+    private Member member(long id, boolean hasPaid, LocalDate memberSince) {
+        var member = new Member();
+        member.setId(id);
+        member.setName("Member " + id);
+        member.setPrice(100.0);
+        member.setHasPaid(hasPaid);
+        member.setMemberSince(memberSince);
+        return member;
+    }
+
+    private MemberPriceRow row(long id) {
+        return MemberPriceRow.of(member(id, true, LocalDate.now().minusYears(5)));
+    }
+
+    private DiscountRules rules(int minTenureYears) {
+        return DiscountRules.compile(List.of(new DiscountRule("loyalty", minTenureYears, true, null, null, null, 15)));
+    }
+
+    @BeforeEach
+    void setUp() {
+        when(discountRuleEngine.rules()).thenReturn(rules(3));
+        when(memberRepository.findPricesJoinedBefore(LocalDate.now().minusYears(3), true)).thenReturn(List.of(row(3), row(1)));
+        eligibilitySnapshot.rebuild();
+    }
+
+    @DisplayName("should serve candidate members ordered by ID")
+    @Test
+    void testMembersOrderedById() {
+        assertEquals(List.of(1L, 3L), eligibilitySnapshot.members().stream().map(MemberPriceRow::id).toList());
+    }
+
+    @DisplayName("should add and remove members when they change")
+    @Test
+    void testMembersChanged() {
+        eligibilitySnapshot.onMembersChanged(new MembersChangedEvent(List.of(
+                member(2, true, LocalDate.now().minusYears(10)),
+                member(3, false, LocalDate.now().minusYears(5)),
+                member(4, true, LocalDate.now().minusYears(1)))));
+
+        assertEquals(List.of(1L, 2L), eligibilitySnapshot.members().stream().map(MemberPriceRow::id).toList());
+    }
+
+    @DisplayName("should add members whose anniversary passed on the daily tick")
+    @Test
+    void testAdvanceAddsAnniversaries() {
+        var lastCutoff = LocalDate.now().minusYears(3).minusDays(2);
+        ReflectionTestUtils.setField(eligibilitySnapshot, "cutoff", lastCutoff);
+        when(memberRepository.findPricesJoinedBetween(lastCutoff, LocalDate.now().minusYears(3), true))
+                .thenReturn(List.of(row(7)));
+
+        eligibilitySnapshot.advance();
+
+        assertEquals(List.of(1L, 3L, 7L), eligibilitySnapshot.members().stream().map(MemberPriceRow::id).toList());
+        eligibilitySnapshot.advance();
+        verify(memberRepository, times(1)).findPricesJoinedBetween(any(), any(), anyBoolean());
+    }
+
+    @DisplayName("should rebuild only when reloaded rules change the candidates")
+    @Test
+    void testRulesReloaded() {
+        eligibilitySnapshot.onRulesReloaded(new DiscountRulesReloadedEvent(1));
+        verify(memberRepository, times(1)).findPricesJoinedBefore(any(), anyBoolean());
+
+        when(discountRuleEngine.rules()).thenReturn(rules(1));
+        when(memberRepository.findPricesJoinedBefore(LocalDate.now().minusYears(1), true)).thenReturn(List.of(row(9)));
+        eligibilitySnapshot.onRulesReloaded(new DiscountRulesReloadedEvent(1));
+
+        assertEquals(List.of(9L), eligibilitySnapshot.members().stream().map(MemberPriceRow::id).toList());
+    }
+
+    @DisplayName("should keep every member as a candidate when a rule has no tenure condition")
+    @Test
+    void testRuleWithoutTenure() {
+        when(discountRuleEngine.rules()).thenReturn(DiscountRules.compile(List.of(
+                new DiscountRule("oslo", null, true, List.of("Oslo"), null, null, 10))));
+        when(memberRepository.findPrices(true)).thenReturn(List.of(row(1)));
+        eligibilitySnapshot.rebuild();
+
+        eligibilitySnapshot.onMembersChanged(new MembersChangedEvent(List.of(
+                member(2, true, null),
+                member(3, true, LocalDate.now()),
+                member(4, true, LocalDate.now().plusDays(10)))));
+        eligibilitySnapshot.advance();
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), eligibilitySnapshot.members().stream().map(MemberPriceRow::id).toList());
+        verify(memberRepository, never()).findPricesJoinedBetween(any(), any(), anyBoolean());
+    }
+}
@@ -0,0 +1,173 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.springboot.membersdiscount.config.TaskExecutors;
+import com.springboot.membersdiscount.email.EmailMessage;
+import com.springboot.membersdiscount.model.EmailDispatchJob;
+import com.springboot.membersdiscount.service.EmailDeliveryListener;
+import com.springboot.membersdiscount.service.EmailDispatcher;
+import com.springboot.membersdiscount.service.EmailService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EmailDispatcherTest {
+    @Mock
+    private EmailService emailService;
+
+    private EmailDispatcher emailDispatcher;
+
+    @BeforeEach
+    void setUp() {
+        emailDispatcher = new EmailDispatcher(emailService, new TaskExecutors(false));
+        ReflectionTestUtils.setField(emailDispatcher, "workers", 1);
+        ReflectionTestUtils.setField(emailDispatcher, "queueCapacity", 10);
+        ReflectionTestUtils.setField(emailDispatcher, "batchSize", 50);
+        ReflectionTestUtils.setField(emailDispatcher, "ratePerSecond", 1000);
+        ReflectionTestUtils.setField(emailDispatcher, "maxAttempts", 2);
+        ReflectionTestUtils.setField(emailDispatcher, "backoffMillis", 10L);
+        emailDispatcher.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        emailDispatcher.stop();
+    }
+
+    private List<EmailMessage> messages(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new EmailMessage("member" + i + "@example.com", "Subject", "Body " + i))
+                .toList();
+    }
+
+    private void awaitStatus(EmailDispatchJob job, EmailDispatchJob.Status status) throws InterruptedException {
+        for (int i = 0; i < 200 && job.getStatus() != status; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(status, job.getStatus());
+    }
+
+    private void awaitCompletion(EmailDispatchJob job) throws InterruptedException {
+        awaitStatus(job, EmailDispatchJob.Status.COMPLETED);
+    }
+
+    @DisplayName("should send all queued emails in the background and track them on the job")
+    @Test
+    void testSubmitSendsAllMessages() throws InterruptedException {
+        when(emailService.sendBatch(anyList())).thenReturn(List.of());
+
+        var job = emailDispatcher.submit("reminders", messages(25));
+        awaitCompletion(job);
+
+        assertEquals(25, job.getSent());
+        assertEquals(0, job.getFailed());
+        assertEquals(job, emailDispatcher.getJob(job.getId()).orElseThrow());
+    }
+
+    @DisplayName("should retry failed emails and give up after the maximum number of attempts")
+    @Test
+    void testRetryFailedMessages() throws InterruptedException {
+        // the first message of every batch fails
+        when(emailService.sendBatch(anyList())).thenReturn(List.of(0));
+
+        var job = emailDispatcher.submit("discounts", messages(1));
+        awaitCompletion(job);
+
+        assertEquals(0, job.getSent());
+        assertEquals(1, job.getFailed());
+        verify(emailService, times(2)).sendBatch(anyList());
+    }
+
+    @DisplayName("should skip messages without a recipient")
+    @Test
+    void testSkipMissingRecipient() throws InterruptedException {
+        var job = emailDispatcher.submit("reminders", List.of(new EmailMessage(null, "Subject", "Body")));
+        awaitCompletion(job);
+
+        assertEquals(1, job.getSkipped());
+        verifyNoInteractions(emailService);
+    }
+
+    @DisplayName("should fail the job when the messages cannot be read, counting only the ones that were queued")
+    @Test
+    void testFailJobWhenReadingFails() throws InterruptedException {
+        when(emailService.sendBatch(anyList())).thenReturn(List.of());
+        Iterator<List<EmailMessage>> batches = new Iterator<>() {
+            private boolean first = true;
+
+            @Override
+            public boolean hasNext() {
+                if (first) {
+                    return true;
+                }
+                throw new IllegalStateException("connection reset");
+            }
+
+            @Override
+            public List<EmailMessage> next() {
+                first = false;
+                return messages(3);
+            }
+        };
+
+        var job = emailDispatcher.submit("discounts", batches, EmailDeliveryListener.NONE);
+        awaitStatus(job, EmailDispatchJob.Status.FAILED);
+
+        assertEquals(3, job.getTotal());
+        assertTrue(job.getError().contains("connection reset"));
+    }
+
+    @DisplayName("should not send the messages the listener withdraws right before sending and count them as skipped")
+    @Test
+    void testDropWithdrawnMessages() throws InterruptedException {
+        when(emailService.sendBatch(anyList())).thenReturn(List.of());
+        var messages = messages(3);
+        var listener = new EmailDeliveryListener() {
+            @Override
+            public List<EmailMessage> onSending(List<EmailMessage> batch) {
+                return batch.stream().filter(message -> message != messages.get(1)).toList();
+            }
+
+            @Override
+            public void onSent(List<EmailMessage> sent) {
+            }
+
+            @Override
+            public void onFailed(EmailMessage message, String error) {
+            }
+        };
+
+        var job = emailDispatcher.submit("discounts", List.of(messages).iterator(), listener);
+        awaitCompletion(job);
+
+        assertEquals(2, job.getSent());
+        assertEquals(1, job.getSkipped());
+        verify(emailService, never()).sendBatch(argThat(batch -> batch.contains(messages.get(1))));
+    }
+
+    @DisplayName("should bound the time an email can take by a full queue per attempt plus the backoff")
+    @Test
+    void testMaxDeliveryTime() {
+        ReflectionTestUtils.setField(emailDispatcher, "queueCapacity", 10000);
+        ReflectionTestUtils.setField(emailDispatcher, "ratePerSecond", 20);
+        ReflectionTestUtils.setField(emailDispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(emailDispatcher, "backoffMillis", 1000L);
+
+        assertEquals(Duration.ofSeconds(1503), emailDispatcher.maxDeliveryTime());
+    }
+}
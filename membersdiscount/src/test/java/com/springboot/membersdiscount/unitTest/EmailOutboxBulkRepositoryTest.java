@@ -0,0 +1,63 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.springboot.membersdiscount.model.EmailOutbox;
+import com.springboot.membersdiscount.repository.EmailOutboxBulkRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Runs the outbox insert against H2 in MySQL mode so ON DUPLICATE KEY UPDATE behaves as on the real database
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;MODE=MySQL",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(EmailOutboxBulkRepository.class)
+public class EmailOutboxBulkRepositoryTest {
+    private static final String CAMPAIGN = "reminders-2025-06-15";
+
+    @Autowired
+    private EmailOutboxBulkRepository emailOutboxBulkRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static EmailOutbox entry(long memberId, String body) {
+        return EmailOutbox.pending(CAMPAIGN, memberId, "m" + memberId + "@example.com", "Subject", body);
+    }
+
+    private int count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM email_outbox", Integer.class);
+    }
+
+    @DisplayName("should skip emails already recorded for the same campaign and member")
+    @Test
+    void testSkipDuplicates() {
+        emailOutboxBulkRepository.insertNew(List.of(entry(1, "First"), entry(2, "First")));
+        emailOutboxBulkRepository.insertNew(List.of(entry(2, "Second"), entry(3, "Second")));
+
+        assertEquals(3, count());
+        assertEquals("First", jdbcTemplate.queryForObject(
+                "SELECT body FROM email_outbox WHERE member_id = 2", String.class));
+    }
+
+    @DisplayName("should fail instead of truncating a body longer than the column")
+    @Test
+    void testRejectTooLongBody() {
+        var tooLong = entry(1, "x".repeat(4001));
+
+        assertThrows(DataIntegrityViolationException.class, () -> emailOutboxBulkRepository.insertNew(List.of(tooLong)));
+    }
+}
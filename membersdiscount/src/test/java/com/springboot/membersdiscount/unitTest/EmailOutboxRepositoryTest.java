@@ -0,0 +1,99 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.springboot.membersdiscount.model.EmailOutbox;
+import com.springboot.membersdiscount.repository.EmailOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"})
+public class EmailOutboxRepositoryTest {
+    private static final String CAMPAIGN = "reminders-2025-06-15";
+    private static final Set<EmailOutbox.Status> UNSENT = EnumSet.of(EmailOutbox.Status.PENDING, EmailOutbox.Status.FAILED);
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 15, 9, 0);
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private List<Long> ids;
+
+    private EmailOutbox persist(long memberId, EmailOutbox.Status status, int attempts) {
+        var entry = EmailOutbox.pending(CAMPAIGN, memberId, "m" + memberId + "@example.com", "Subject", "Body");
+        entry.setStatus(status);
+        entry.setAttempts(attempts);
+        return entityManager.persist(entry);
+    }
+
+    @BeforeEach
+    void setUp() {
+        ids = List.of(
+                persist(1, EmailOutbox.Status.PENDING, 0).getId(),
+                persist(2, EmailOutbox.Status.FAILED, 1).getId(),
+                persist(3, EmailOutbox.Status.FAILED, 3).getId(),
+                persist(4, EmailOutbox.Status.SENT, 1).getId());
+        entityManager.flush();
+    }
+
+    private int claim(String owner, LocalDateTime now) {
+        return emailOutboxRepository.claim(ids, UNSENT, EmailOutbox.Status.SENDING, 3, owner, now.plusMinutes(15), now);
+    }
+
+    @DisplayName("should offer only unsent emails with attempts left")
+    @Test
+    void testFindClaimableIds() {
+        var claimable = emailOutboxRepository.findClaimableIds(CAMPAIGN, UNSENT, EmailOutbox.Status.SENDING, 3, NOW,
+                0L, Limit.of(10));
+
+        assertEquals(ids.subList(0, 2), claimable);
+    }
+
+    @DisplayName("should let only one dispatch claim an email until its lease runs out")
+    @Test
+    void testClaimIsExclusiveUntilLeaseRunsOut() {
+        assertEquals(2, claim("node-a/1", NOW));
+        assertEquals(0, claim("node-b/1", NOW.plusMinutes(5)));
+        entityManager.clear();
+        assertEquals(ids.subList(0, 2), emailOutboxRepository
+                .findByOwnerAndStatusAndIdInOrderByIdAsc("node-a/1", EmailOutbox.Status.SENDING, ids).stream()
+                .map(EmailOutbox::getId).toList());
+
+        assertEquals(2, claim("node-b/1", NOW.plusMinutes(20)));
+        entityManager.clear();
+        assertTrue(emailOutboxRepository.findByOwnerAndStatusAndIdInOrderByIdAsc("node-a/1", EmailOutbox.Status.SENDING, ids)
+                .isEmpty());
+        assertEquals(List.of(CAMPAIGN), emailOutboxRepository.findCampaignsToResume(EmailOutbox.Status.PENDING,
+                EmailOutbox.Status.SENDING, NOW.plusMinutes(40)));
+    }
+
+    @DisplayName("should renew and record only the emails the dispatch still owns")
+    @Test
+    void testRenewAndRecordOnlyOwnedEmails() {
+        claim("node-a/1", NOW);
+        claim("node-b/1", NOW.plusMinutes(20));
+
+        assertEquals(0, emailOutboxRepository.renewLease(ids, "node-a/1", EmailOutbox.Status.SENDING,
+                NOW.plusMinutes(40), NOW.plusMinutes(25)));
+        assertEquals(0, emailOutboxRepository.updateStatus(ids, "node-a/1", EmailOutbox.Status.SENT, null,
+                NOW.plusMinutes(25)));
+        assertEquals(2, emailOutboxRepository.renewLease(ids, "node-b/1", EmailOutbox.Status.SENDING,
+                NOW.plusMinutes(40), NOW.plusMinutes(25)));
+        assertEquals(2, emailOutboxRepository.updateStatus(ids.subList(0, 2), "node-b/1", EmailOutbox.Status.SENT, null,
+                NOW.plusMinutes(26)));
+    }
+}
@@ -0,0 +1,159 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.springboot.membersdiscount.email.EmailMessage;
+import com.springboot.membersdiscount.model.EmailDispatchJob;
+import com.springboot.membersdiscount.model.EmailOutbox;
+import com.springboot.membersdiscount.repository.EmailOutboxBulkRepository;
+import com.springboot.membersdiscount.repository.EmailOutboxRepository;
+import com.springboot.membersdiscount.service.ClusterNode;
+import com.springboot.membersdiscount.service.EmailDeliveryListener;
+import com.springboot.membersdiscount.service.EmailDispatcher;
+import com.springboot.membersdiscount.service.EmailOutboxService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EmailOutboxServiceTest {
+    @Mock
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Mock
+    private EmailOutboxBulkRepository emailOutboxBulkRepository;
+
+    @Mock
+    private EmailDispatcher emailDispatcher;
+
+    @Spy
+    private ClusterNode clusterNode = new ClusterNode("node-1", 1, 0);
+
+    @InjectMocks
+    private EmailOutboxService emailOutboxService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(emailOutboxService, "batchSize", 2);
+        ReflectionTestUtils.setField(emailOutboxService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(emailOutboxService, "lease", Duration.ofMinutes(15));
+    }
+
+    private EmailOutbox entry(long id, long memberId) {
+        var entry = EmailOutbox.pending("discounts-2025-01", memberId, "m" + memberId + "@example.com", "Subject", "Body");
+        entry.setId(id);
+        return entry;
+    }
+
+    @DisplayName("should record the campaign's emails in batches")
+    @Test
+    void testRecordInBatches() {
+        emailOutboxService.record(List.of(entry(1, 1), entry(2, 2), entry(3, 3)));
+
+        verify(emailOutboxBulkRepository, times(2)).insertNew(anyList());
+    }
+
+    @DisplayName("should claim each page of unsent emails, send only the claimed ones and mark them sent")
+    @SuppressWarnings("unchecked")
+    @Test
+    void testDispatchClaimedEmails() {
+        var campaign = "discounts-2025-01";
+        when(emailOutboxRepository.findClaimableIds(eq(campaign), any(), eq(EmailOutbox.Status.SENDING), eq(3), any(), eq(0L), any(Limit.class)))
+                .thenReturn(List.of(1L, 2L));
+        when(emailOutboxRepository.findClaimableIds(eq(campaign), any(), eq(EmailOutbox.Status.SENDING), eq(3), any(), eq(2L), any(Limit.class)))
+                .thenReturn(List.of(3L, 5L));
+        when(emailOutboxRepository.findClaimableIds(eq(campaign), any(), eq(EmailOutbox.Status.SENDING), eq(3), any(), eq(5L), any(Limit.class)))
+                .thenReturn(List.of());
+        var owner = ArgumentCaptor.forClass(String.class);
+        when(emailOutboxRepository.claim(anyCollection(), any(), any(), eq(3), owner.capture(), any(), any())).thenReturn(2, 1);
+        // another dispatch claimed email 3 first
+        when(emailOutboxRepository.findByOwnerAndStatusAndIdInOrderByIdAsc(anyString(), eq(EmailOutbox.Status.SENDING), eq(List.of(1L, 2L))))
+                .thenReturn(List.of(entry(1, 1), entry(2, 2)));
+        when(emailOutboxRepository.findByOwnerAndStatusAndIdInOrderByIdAsc(anyString(), eq(EmailOutbox.Status.SENDING), eq(List.of(3L, 5L))))
+                .thenReturn(List.of(entry(5, 4)));
+        var job = new EmailDispatchJob(campaign);
+        var batches = ArgumentCaptor.forClass(Iterator.class);
+        var listener = ArgumentCaptor.forClass(EmailDeliveryListener.class);
+        when(emailDispatcher.submit(eq(campaign), batches.capture(), listener.capture())).thenReturn(job);
+
+        assertSame(job, emailOutboxService.dispatch(campaign));
+
+        List<EmailMessage> messages = new ArrayList<>();
+        batches.getValue().forEachRemaining(batch -> messages.addAll((List<EmailMessage>) batch));
+        assertEquals(List.of(1L, 2L, 5L), messages.stream().map(EmailMessage::outboxId).toList());
+        assertTrue(owner.getValue().startsWith("node-1/"));
+        assertEquals(1, owner.getAllValues().stream().distinct().count());
+
+        listener.getValue().onSent(messages.subList(0, 2));
+        verify(emailOutboxRepository).updateStatus(eq(List.of(1L, 2L)), eq(owner.getValue()), eq(EmailOutbox.Status.SENT),
+                isNull(), any());
+    }
+
+    @DisplayName("should renew the claim when a worker takes the emails and drop the ones another dispatch took over")
+    @Test
+    void testRenewClaimBeforeSending() {
+        var listener = ArgumentCaptor.forClass(EmailDeliveryListener.class);
+        when(emailDispatcher.submit(any(), any(), listener.capture())).thenReturn(new EmailDispatchJob("discounts-2025-01"));
+        emailOutboxService.dispatch("discounts-2025-01");
+        var messages = List.of(new EmailMessage(1L, "a@example.com", "Subject", "Body"),
+                new EmailMessage(2L, "b@example.com", "Subject", "Body"));
+        when(emailOutboxRepository.renewLease(eq(List.of(1L, 2L)), anyString(), eq(EmailOutbox.Status.SENDING), any(), any()))
+                .thenReturn(2, 1);
+        when(emailOutboxRepository.findByOwnerAndStatusAndIdInOrderByIdAsc(anyString(), eq(EmailOutbox.Status.SENDING),
+                eq(List.of(1L, 2L)))).thenReturn(List.of(entry(2, 2)));
+
+        assertEquals(messages, listener.getValue().onSending(messages));
+        assertEquals(messages.subList(1, 2), listener.getValue().onSending(messages));
+    }
+
+    @DisplayName("should refuse a lease shorter than the time an email can spend in the dispatcher")
+    @Test
+    void testRejectShortLease() {
+        when(emailDispatcher.maxDeliveryTime()).thenReturn(Duration.ofMinutes(25));
+
+        assertThrows(IllegalStateException.class, () -> emailOutboxService.checkLease());
+        ReflectionTestUtils.setField(emailOutboxService, "lease", Duration.ofMinutes(30));
+        assertDoesNotThrow(() -> emailOutboxService.checkLease());
+    }
+
+    @DisplayName("should not start a campaign that is already being sent")
+    @Test
+    void testDispatchRunningCampaignOnce() {
+        var job = new EmailDispatchJob("reminders-2025-01-01");
+        when(emailDispatcher.submit(any(), any(), any())).thenReturn(job);
+
+        emailOutboxService.dispatch("reminders-2025-01-01");
+        var second = emailOutboxService.dispatch("reminders-2025-01-01");
+
+        assertSame(job, second);
+        verify(emailDispatcher, times(1)).submit(any(), any(), any());
+    }
+
+    @DisplayName("should start a campaign again once its previous dispatch failed")
+    @Test
+    void testDispatchAgainAfterFailedJob() {
+        var failed = new EmailDispatchJob("reminders-2025-01-01");
+        failed.fail("Failed to read emails: connection reset");
+        var retry = new EmailDispatchJob("reminders-2025-01-01");
+        when(emailDispatcher.submit(any(), any(), any())).thenReturn(failed, retry);
+
+        emailOutboxService.dispatch("reminders-2025-01-01");
+
+        assertSame(retry, emailOutboxService.dispatch("reminders-2025-01-01"));
+    }
+}
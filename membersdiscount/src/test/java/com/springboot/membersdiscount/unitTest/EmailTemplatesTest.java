@@ -0,0 +1,83 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.springboot.membersdiscount.email.EmailTemplate;
+import com.springboot.membersdiscount.email.EmailTemplates;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.Locale;
+
+import static com.springboot.membersdiscount.email.EmailTemplet.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmailTemplatesTest {
+
+    private EmailTemplates emailTemplates;
+
+    @BeforeEach
+    void setUp() {
+        emailTemplates = new EmailTemplates("en-US", "USD", "Oslo:nb-NO, Bergen:nb-NO");
+    }
+
+    @DisplayName("should render the discount email like the previous String.format template")
+    @Test
+    void testRenderDiscount() {
+        var email = emailTemplates.render(DISCOUNT, "London", "Ola", 15, 100.0, 85.0);
+
+        assertEquals("Congratulations! You got a 15% discount", email.subject());
+        assertEquals("Hello Ola,\n\nYou have received a 15% discount!\nOriginal Price: $100.00\n"
+                + "Discounted Price: $85.00\n\nThank you!", email.body());
+    }
+
+    @DisplayName("should render the reminder email with the deadline")
+    @Test
+    void testRenderReminder() {
+        var email = emailTemplates.render(REMINDER, null, "Anne", LocalDate.of(2025, 3, 1));
+
+        assertEquals(REMINDER_SUBJECT, email.subject());
+        assertTrue(email.body().contains("Your payment is due on 2025-03-01."));
+    }
+
+    @DisplayName("should render the overdue reminder without asking to pay before the deadline")
+    @Test
+    void testRenderOverdueReminder() {
+        var email = emailTemplates.render(OVERDUE_REMINDER, null, "Anne", LocalDate.of(2025, 3, 1));
+        var localized = emailTemplates.render(OVERDUE_REMINDER, "Bergen", "Anne", LocalDate.of(2025, 3, 1));
+
+        assertEquals(OVERDUE_REMINDER_SUBJECT, email.subject());
+        assertTrue(email.body().contains("Your payment was due on 2025-03-01"));
+        assertFalse(email.body().contains("before the deadline"));
+        assertEquals(OVERDUE_REMINDER_SUBJECT_NB, localized.subject());
+    }
+
+    @DisplayName("should pick the localized template from the member's location")
+    @Test
+    void testRenderLocalized() {
+        var email = emailTemplates.render(DISCOUNT, "oslo", "Tor", 12.5, 100.0, 87.5);
+
+        assertEquals("Gratulerer! Du har fått 12,5 % rabatt", email.subject());
+        assertTrue(email.body().startsWith("Hei Tor,"));
+        assertTrue(email.body().contains("87,50"));
+    }
+
+    @DisplayName("should reject unknown placeholders and unclosed braces when compiling")
+    @Test
+    void testCompileErrors() {
+        var usd = Currency.getInstance("USD");
+        assertThrows(IllegalArgumentException.class, () -> EmailTemplate.compile("Hello {nme}", usd, "name"));
+        assertThrows(IllegalArgumentException.class, () -> EmailTemplate.compile("Hello {name", usd, "name"));
+        assertThrows(IllegalArgumentException.class, () -> EmailTemplate.compile("{name,upper}", usd, "name"));
+    }
+
+    @DisplayName("should reuse a compiled template for many renders")
+    @Test
+    void testRenderMany() {
+        var template = EmailTemplate.compile("{name} owes {amount,currency}", Currency.getInstance("USD"), "name", "amount");
+
+        assertEquals("Ola owes $1.50", template.render(Locale.US, "Ola", 1.5));
+        assertEquals("Anne owes $2.00", template.render(Locale.US, "Anne", 2));
+    }
+}
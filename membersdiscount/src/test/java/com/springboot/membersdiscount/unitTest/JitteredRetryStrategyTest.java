@@ -0,0 +1,64 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.springboot.membersdiscount.config.JitteredRetryStrategy;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.message.BasicClassicHttpRequest;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JitteredRetryStrategyTest {
+
+    private final JitteredRetryStrategy strategy = new JitteredRetryStrategy(3, Duration.ofMillis(100), Duration.ofMillis(300));
+
+    @DisplayName("should retry GETs on I/O errors but never POSTs")
+    @Test
+    void testRetriesOnlyIdempotentRequests() {
+        var context = HttpClientContext.create();
+        IOException timeout = new SocketTimeoutException("Read timed out");
+
+        assertTrue(strategy.retryRequest(new BasicClassicHttpRequest("GET", "/data"), timeout, 1, context));
+        assertFalse(strategy.retryRequest(new BasicClassicHttpRequest("POST", "/data"), timeout, 1, context));
+        assertFalse(strategy.retryRequest(new BasicClassicHttpRequest("GET", "/data"), new UnknownHostException(), 1, context));
+        assertFalse(strategy.retryRequest(new BasicClassicHttpRequest("GET", "/data"), timeout, 4, context));
+
+        context.setRequest(new BasicClassicHttpRequest("GET", "/data"));
+        assertTrue(strategy.retryRequest(new BasicHttpResponse(503), 1, context));
+        context.setRequest(new BasicClassicHttpRequest("POST", "/data"));
+        assertFalse(strategy.retryRequest(new BasicHttpResponse(503), 1, context));
+    }
+
+    @DisplayName("should wait a random time below the capped exponential backoff")
+    @Test
+    void testJitteredBackoff() {
+        var context = HttpClientContext.create();
+        var request = new BasicClassicHttpRequest("GET", "/data");
+        for (int i = 0; i < 100; i++) {
+            assertTrue(strategy.getRetryInterval(request, new IOException(), 1, context).toMilliseconds() <= 100);
+            assertTrue(strategy.getRetryInterval(request, new IOException(), 3, context).toMilliseconds() <= 300);
+        }
+    }
+
+    @DisplayName("should honour Retry-After up to the max backoff")
+    @Test
+    void testRetryAfterCappedAtMaxBackoff() {
+        var context = HttpClientContext.create();
+        var patient = new JitteredRetryStrategy(3, Duration.ofMillis(100), Duration.ofSeconds(5));
+
+        var unavailable = new BasicHttpResponse(503);
+        unavailable.addHeader("Retry-After", "2");
+        assertEquals(2000, patient.getRetryInterval(unavailable, 1, context).toMilliseconds());
+
+        var throttled = new BasicHttpResponse(429);
+        throttled.addHeader("Retry-After", "3600");
+        assertEquals(5000, patient.getRetryInterval(throttled, 1, context).toMilliseconds());
+        assertEquals(300, strategy.getRetryInterval(throttled, 1, context).toMilliseconds());
+    }
+}
@@ -0,0 +1,130 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.springboot.membersdiscount.config.TaskExecutors;
+import com.springboot.membersdiscount.exception.JobAlreadyRunningException;
+import com.springboot.membersdiscount.model.BackgroundJob;
+import com.springboot.membersdiscount.repository.ClusterLockRepository;
+import com.springboot.membersdiscount.service.ClusterNode;
+import com.springboot.membersdiscount.service.JobService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class JobServiceTest {
+
+    private final ClusterLockRepository clusterLockRepository = mock(ClusterLockRepository.class);
+
+    private final JobService jobService = new JobService(clusterLockRepository, new ClusterNode("node-1", 4, 1),
+            new TaskExecutors(false));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(jobService, "workers", 2);
+        ReflectionTestUtils.setField(jobService, "clusterLocking", true);
+        ReflectionTestUtils.setField(jobService, "lockAtMostFor", Duration.ofHours(2));
+        ReflectionTestUtils.setField(jobService, "lockAtLeastFor", Duration.ofSeconds(30));
+        when(clusterLockRepository.tryLock(any(), any(), any(), any())).thenReturn(true);
+        jobService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobService.stop();
+    }
+
+    private static void awaitFinished(BackgroundJob job) throws InterruptedException {
+        for (int i = 0; i < 200 && !job.isFinished(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(job.isFinished());
+    }
+
+    @DisplayName("should run a job in the background and keep its progress and result")
+    @Test
+    void testSubmit() throws Exception {
+        var job = jobService.submit("sync", running -> {
+            running.setTotal(10);
+            running.recordProgress(10, 2);
+            return "done";
+        });
+
+        awaitFinished(job);
+        assertSame(job, jobService.getJob(job.getId()).orElseThrow());
+        assertEquals(BackgroundJob.Status.COMPLETED, job.getStatus());
+        assertEquals("done", job.getResult());
+        assertEquals(10, job.getProcessed());
+        assertEquals(2, job.getFailed());
+        assertEquals("api", job.getTrigger());
+    }
+
+    @DisplayName("should not start a job while one of the same type is running")
+    @Test
+    void testSingleFlight() throws Exception {
+        var release = new CountDownLatch(1);
+        var first = jobService.submit("sync", running -> {
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        var conflict = assertThrows(JobAlreadyRunningException.class, () -> jobService.submit("sync", running -> null));
+        assertEquals(first.getId(), conflict.getJobId());
+        assertTrue(jobService.runScheduled("sync", running -> null).isEmpty());
+        assertTrue(jobService.runScheduled("reminders", running -> null).isPresent());
+
+        release.countDown();
+        awaitFinished(first);
+        assertTrue(jobService.runScheduled("sync", running -> null).isPresent());
+    }
+
+    @DisplayName("should lock the job per shard in the database and keep a scheduled run's lock for a while")
+    @Test
+    void testClusterLock() {
+        var lockedAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        var until = ArgumentCaptor.forClass(LocalDateTime.class);
+
+        jobService.runScheduled("sync", running -> null);
+
+        verify(clusterLockRepository).tryLock(eq("sync#1/4"), eq("node-1"), lockedAt.capture(), any());
+        verify(clusterLockRepository).unlock(eq("sync#1/4"), eq("node-1"), eq(lockedAt.getValue()), until.capture());
+        assertEquals(lockedAt.getValue().plusSeconds(30), until.getValue());
+    }
+
+    @DisplayName("should not start a job that another node is running")
+    @Test
+    void testLockedByAnotherNode() {
+        when(clusterLockRepository.tryLock(any(), any(), any(), any())).thenReturn(false);
+
+        var conflict = assertThrows(JobAlreadyRunningException.class, () -> jobService.submit("sync", running -> null));
+        assertNull(conflict.getJobId());
+        assertTrue(jobService.runScheduled("sync", running -> null).isEmpty());
+        verify(clusterLockRepository, never()).unlock(any(), any(), any(), any());
+    }
+
+    @DisplayName("should mark a job that throws as failed and let the next one run")
+    @Test
+    void testFailedJob() {
+        var job = jobService.runScheduled("sync", running -> {
+            throw new IllegalStateException("Failed to fetch members from external API: timeout");
+        }).orElseThrow();
+
+        assertEquals(BackgroundJob.Status.FAILED, job.getStatus());
+        assertEquals("Failed to fetch members from external API: timeout", job.getError());
+        assertEquals("schedule", job.getTrigger());
+        assertTrue(jobService.runScheduled("sync", running -> null).isPresent());
+    }
+}
@@ -0,0 +1,112 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.springboot.membersdiscount.analytics.MemberColumns;
+import com.springboot.membersdiscount.model.DiscountCost;
+import com.springboot.membersdiscount.model.DiscountRule;
+import com.springboot.membersdiscount.model.LocationTotals;
+import com.springboot.membersdiscount.model.MembersChangedEvent;
+import com.springboot.membersdiscount.model.TenureBucket;
+import com.springboot.membersdiscount.repository.MemberColumnsRepository;
+import com.springboot.membersdiscount.service.DiscountRuleEngine;
+import com.springboot.membersdiscount.service.DiscountRules;
+import com.springboot.membersdiscount.service.MemberAnalyticsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MemberAnalyticsServiceTest {
+    @Mock
+    private MemberColumnsRepository memberColumnsRepository;
+
+    @Mock
+    private DiscountRuleEngine discountRuleEngine;
+
+    @InjectMocks
+    private MemberAnalyticsService memberAnalyticsService;
+
+    private static int yearsAgo(int years) {
+        return (int) LocalDate.now().minusYears(years).toEpochDay();
+    }
+
+    // 200 members in Oslo, Bergen and no location, every third one unpaid and every tenth without a price or memberSince
+    private static MemberColumns columns() {
+        var builder = MemberColumns.builder();
+        String[] locations = {null, "Oslo", "Bergen"};
+        for (long id = 1; id <= 200; id++) {
+            boolean sparse = id % 10 == 0;
+            builder.add(id, locations[(int) (id % 3)], sparse ? Double.NaN : 100.0,
+                    sparse ? MemberColumns.NO_DAY : yearsAgo((int) (id % 5)), id % 3 != 0);
+        }
+        return builder.build();
+    }
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(memberAnalyticsService, "parallelThreshold", 50000);
+        ReflectionTestUtils.setField(memberAnalyticsService, "maxAge", Duration.ofMinutes(15));
+        lenient().when(memberColumnsRepository.load()).thenReturn(columns());
+    }
+
+    @DisplayName("should give the same aggregates whether the scan runs in one segment or in parallel")
+    @Test
+    void testParallelScanMatchesSequential() {
+        var totals = memberAnalyticsService.totals();
+        List<LocationTotals> locations = memberAnalyticsService.revenueByLocation();
+        List<TenureBucket> tenure = memberAnalyticsService.tenureDistribution();
+
+        assertEquals(200, totals.members());
+        assertEquals(134, totals.paid());
+        assertEquals(66, totals.unpaid());
+        assertEquals(120 * 100.0, totals.revenue());
+        assertEquals(60 * 100.0, totals.outstanding());
+        assertEquals(3, locations.size());
+        assertEquals(List.of(0, 1, 2, 3, 4), tenure.stream().map(TenureBucket::years).toList());
+        assertEquals(180, tenure.stream().mapToLong(TenureBucket::members).sum());
+
+        ReflectionTestUtils.setField(memberAnalyticsService, "parallelThreshold", 0);
+        assertEquals(totals, memberAnalyticsService.totals());
+        assertEquals(locations, memberAnalyticsService.revenueByLocation());
+        assertEquals(tenure, memberAnalyticsService.tenureDistribution());
+        verify(memberColumnsRepository, times(1)).load();
+    }
+
+    @DisplayName("should cost each discount rule over the members it is the first match for")
+    @Test
+    void testDiscountCost() {
+        when(discountRuleEngine.rules()).thenReturn(DiscountRules.compile(List.of(
+                new DiscountRule("oslo", 3, true, List.of("oslo"), null, null, 20),
+                new DiscountRule("loyalty", 3, true, null, null, null, 10))));
+
+        List<DiscountCost> costs = memberAnalyticsService.discountCost();
+
+        // only the paid members with four years of tenure qualify: IDs 4, 19, ..., 199 are in Oslo, 14, 29, ..., 194 in Bergen
+        assertEquals(new DiscountCost("oslo", 20, 14, 1400.0, 280.0), costs.get(0));
+        assertEquals(new DiscountCost("loyalty", 10, 13, 1300.0, 130.0), costs.get(1));
+    }
+
+    @DisplayName("should rebuild the store on the next check after members changed")
+    @Test
+    void testRefreshWhenStale() {
+        memberAnalyticsService.warmUp();
+        memberAnalyticsService.refreshIfStale();
+        verify(memberColumnsRepository, times(1)).load();
+
+        memberAnalyticsService.onMembersChanged(new MembersChangedEvent(List.of()));
+        memberAnalyticsService.refreshIfStale();
+        memberAnalyticsService.refreshIfStale();
+        verify(memberColumnsRepository, times(2)).load();
+    }
+}
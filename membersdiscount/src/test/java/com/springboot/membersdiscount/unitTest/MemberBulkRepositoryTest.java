@@ -0,0 +1,160 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.springboot.membersdiscount.config.TaskExecutors;
+import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.model.UpsertResult;
+import com.springboot.membersdiscount.repository.MemberBulkRepository;
+import com.springboot.membersdiscount.service.MemberIngestor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//Runs the bulk upsert against H2 in MySQL mode with a short lock timeout, while another transaction holds a row lock
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulk;MODE=MySQL;LOCK_TIMEOUT=100;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(MemberBulkRepository.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class MemberBulkRepositoryTest {
+    @Autowired
+    private MemberBulkRepository memberBulkRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final CountDownLatch locked = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private static Member member(long id, String name) {
+        var member = new Member();
+        member.setId(id);
+        member.setName(name);
+        member.setPrice(100.0);
+        member.setHasPaid(false);
+        member.setMemberSince(LocalDate.of(2020, 1, 1));
+        return member;
+    }
+
+    @BeforeEach
+    void setUp() {
+        memberBulkRepository.upsert(List.of(member(1, "Ola"), member(2, "Kari")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        jdbcTemplate.update("DELETE FROM members");
+    }
+
+    // holds the row lock of member 1 in another transaction until release is counted down
+    private CompletableFuture<Void> holdLockOnFirstMember() throws InterruptedException {
+        var holder = CompletableFuture.runAsync(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE members SET name = 'Held' WHERE id = 1");
+            locked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(locked.await(10, TimeUnit.SECONDS));
+        return holder;
+    }
+
+    @DisplayName("should keep a payment recorded here while the feed still shows the same deadline unpaid")
+    @Test
+    void testSyncKeepsLocalPayment() {
+        var deadline = LocalDate.of(2025, 6, 30);
+        var ola = member(1, "Ola");
+        ola.setDeadline(deadline);
+        memberBulkRepository.upsert(List.of(ola));
+        // what DiscountService.markPaid does for a payment event
+        jdbcTemplate.update("UPDATE members SET has_paid = true, fingerprint = null WHERE id = 1");
+
+        var synced = member(1, "Ola");
+        synced.setDeadline(deadline);
+        memberBulkRepository.upsert(List.of(synced));
+        assertTrue(synced.getHasPaid());
+        assertTrue(jdbcTemplate.queryForObject("SELECT has_paid FROM members WHERE id = 1", Boolean.class));
+
+        var unchanged = member(1, "Ola");
+        unchanged.setDeadline(deadline);
+        assertEquals(new UpsertResult(0, 0, 0, 1), memberBulkRepository.upsert(List.of(unchanged)));
+
+        var nextPeriod = member(1, "Ola");
+        nextPeriod.setDeadline(deadline.plusMonths(1));
+        memberBulkRepository.upsert(List.of(nextPeriod));
+        assertFalse(jdbcTemplate.queryForObject("SELECT has_paid FROM members WHERE id = 1", Boolean.class));
+    }
+
+    @DisplayName("should rethrow a lock timeout instead of failing the members row by row")
+    @Test
+    void testLockTimeoutIsRethrown() throws Exception {
+        var holder = holdLockOnFirstMember();
+
+        assertThrows(TransientDataAccessException.class,
+                () -> memberBulkRepository.upsert(List.of(member(1, "Per"), member(3, "Anne"))));
+
+        release.countDown();
+        holder.get(10, TimeUnit.SECONDS);
+        // the whole chunk was rolled back, including the member that did not wait on a lock
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM members WHERE id = 3", Integer.class));
+    }
+
+    @DisplayName("should let the ingestor retry a partition that hit a lock timeout until the lock is released")
+    @Test
+    void testIngestorRetriesLockTimeout() throws Exception {
+        var memberIngestor = new MemberIngestor(new TaskExecutors(false));
+        ReflectionTestUtils.setField(memberIngestor, "parallelism", 1);
+        ReflectionTestUtils.setField(memberIngestor, "connectionPoolSize", 10);
+        ReflectionTestUtils.setField(memberIngestor, "maxAttempts", 3);
+        ReflectionTestUtils.setField(memberIngestor, "backoffMillis", 50L);
+        memberIngestor.start();
+        var holder = holdLockOnFirstMember();
+        try {
+            var run = memberIngestor.start(members -> {
+                try {
+                    return memberBulkRepository.upsert(members);
+                } catch (TransientDataAccessException e) {
+                    release.countDown();
+                    throw e;
+                }
+            });
+            run.submit(List.of(member(1, "Per"), member(3, "Anne")));
+
+            assertEquals(new UpsertResult(1, 1, 0, 0), run.await());
+        } finally {
+            memberIngestor.stop();
+        }
+        holder.get(10, TimeUnit.SECONDS);
+        assertEquals("Per", jdbcTemplate.queryForObject("SELECT name FROM members WHERE id = 1", String.class));
+    }
+}
@@ -0,0 +1,167 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.springboot.membersdiscount.config.AppMetrics;
+import com.springboot.membersdiscount.config.CacheConfig;
+import com.springboot.membersdiscount.email.EmailTemplates;
+import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.model.MembersChangedEvent;
+import com.springboot.membersdiscount.model.SyncWatermark;
+import com.springboot.membersdiscount.repository.MemberBulkRepository;
+import com.springboot.membersdiscount.repository.MemberRepository;
+import com.springboot.membersdiscount.repository.SyncWatermarkRepository;
+import com.springboot.membersdiscount.service.ClusterNode;
+import com.springboot.membersdiscount.service.DiscountRuleEngine;
+import com.springboot.membersdiscount.service.DiscountService;
+import com.springboot.membersdiscount.service.EligibilitySnapshot;
+import com.springboot.membersdiscount.service.EmailOutboxService;
+import com.springboot.membersdiscount.service.JobService;
+import com.springboot.membersdiscount.service.MemberExporter;
+import com.springboot.membersdiscount.service.MemberFeedReader;
+import com.springboot.membersdiscount.service.MemberIngestor;
+import com.springboot.membersdiscount.service.MemberListVersion;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.cache.CacheMetricsAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(classes = {DiscountService.class, MemberListVersion.class, CacheConfig.class}, properties = {
+        "spring.cache.type=caffeine",
+        "spring.cache.cache-names=members,paidMembers,unpaidMembers",
+        "external.api.get.url=http://localhost/members",
+        "external.api.post.url=http://localhost/discounts"})
+@ImportAutoConfiguration({CacheAutoConfiguration.class, MetricsAutoConfiguration.class,
+        CompositeMeterRegistryAutoConfiguration.class, SimpleMetricsExportAutoConfiguration.class,
+        CacheMetricsAutoConfiguration.class})
+public class MemberCacheTest {
+    @MockitoBean
+    private RestTemplate restTemplate;
+    @MockitoBean
+    private MemberRepository memberRepository;
+    @MockitoBean
+    private MemberBulkRepository memberBulkRepository;
+    @MockitoBean
+    private EmailOutboxService emailOutboxService;
+    @MockitoBean
+    private EmailTemplates emailTemplates;
+    @MockitoBean
+    private MemberFeedReader memberFeedReader;
+    @MockitoBean
+    private EntityManager entityManager;
+    @MockitoBean
+    private AppMetrics appMetrics;
+    @MockitoBean
+    private MemberExporter memberExporter;
+    @MockitoBean
+    private SyncWatermarkRepository syncWatermarkRepository;
+    @MockitoBean
+    private EligibilitySnapshot eligibilitySnapshot;
+    @MockitoBean
+    private DiscountRuleEngine discountRuleEngine;
+    @MockitoBean
+    private MemberIngestor memberIngestor;
+    @MockitoBean
+    private JobService jobService;
+    @MockitoBean
+    private ClusterNode clusterNode;
+
+    @Autowired
+    private DiscountService discountService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Member member = new Member();
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        member.setId(1L);
+        member.setName("Ola");
+        member.setHasPaid(true);
+        when(memberRepository.findAll()).thenReturn(List.of(member));
+        when(memberRepository.findByHasPaid(true)).thenReturn(List.of(member));
+    }
+
+    @DisplayName("should serve repeated member reads from the cache")
+    @Test
+    void testRepeatedReadsAreCached() {
+        // the registry is shared by every test of the context
+        double hitsBefore = meterRegistry.find("cache.gets").tag("cache", "members").tag("result", "hit")
+                .functionCounters().stream().mapToDouble(counter -> counter.count()).sum();
+        assertEquals(List.of(member), discountService.fetchAllMembers());
+        assertEquals(List.of(member), discountService.fetchAllMembers());
+        discountService.getMembersWhoHavePaid();
+        discountService.getMembersWhoHavePaid();
+
+        verify(memberRepository, times(1)).findAll();
+        verify(memberRepository, times(1)).findByHasPaid(true);
+        assertEquals(hitsBefore + 1, meterRegistry.get("cache.gets").tag("cache", "members").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @DisplayName("should read the members again after they change")
+    @Test
+    void testEvictOnMembersChanged() {
+        discountService.fetchAllMembers();
+        discountService.getMembersWhoHavePaid();
+
+        eventPublisher.publishEvent(new MembersChangedEvent(List.of(member)));
+        discountService.fetchAllMembers();
+        discountService.getMembersWhoHavePaid();
+
+        verify(memberRepository, times(2)).findAll();
+        verify(memberRepository, times(2)).findByHasPaid(true);
+    }
+
+    @DisplayName("should read the members again after another node changed them")
+    @Test
+    void testEvictWhenChangedOnAnotherNode() {
+        discountService.fetchAllMembers();
+        discountService.getMembersWhoHavePaid();
+        discountService.fetchAllMembers();
+
+        var version = new SyncWatermark("member-lists");
+        version.setEtag("written-by-node-2");
+        when(syncWatermarkRepository.findById("member-lists")).thenReturn(Optional.of(version));
+        discountService.fetchAllMembers();
+        discountService.getMembersWhoHavePaid();
+        discountService.fetchAllMembers();
+
+        verify(memberRepository, times(2)).findAll();
+        verify(memberRepository, times(2)).findByHasPaid(true);
+    }
+
+    @DisplayName("should publish a new member version after members changed on this node")
+    @Test
+    void testPublishVersionOnMembersChanged() {
+        eventPublisher.publishEvent(new MembersChangedEvent(List.of(member)));
+
+        verify(syncWatermarkRepository).save(argThat(version -> version.getSource().equals("member-lists")
+                && version.getEtag() != null));
+    }
+}
@@ -0,0 +1,107 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.springboot.membersdiscount.config.TaskExecutors;
+import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.service.MemberExporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MemberExporterTest {
+    private static final String URL = "http://members.test/data";
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    @Spy
+    private TaskExecutors taskExecutors = new TaskExecutors(false);
+
+    @InjectMocks
+    private MemberExporter memberExporter;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(memberExporter, "chunkSize", 2);
+        ReflectionTestUtils.setField(memberExporter, "parallelism", 2);
+        ReflectionTestUtils.setField(memberExporter, "maxAttempts", 3);
+        ReflectionTestUtils.setField(memberExporter, "backoffMillis", 1L);
+        memberExporter.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        memberExporter.stop();
+    }
+
+    private List<Member> members(int count) {
+        return LongStream.rangeClosed(1, count).mapToObj(id -> {
+            var member = new Member();
+            member.setId(id);
+            return member;
+        }).toList();
+    }
+
+    @DisplayName("should post the members in chunks without reading the response")
+    @Test
+    void testExportInChunks() {
+        var members = members(5);
+        when(restTemplate.postForEntity(eq(URL), anyList(), eq(Void.class))).thenReturn(ResponseEntity.ok().build());
+
+        var report = memberExporter.export(URL, members);
+
+        assertTrue(report.complete());
+        assertEquals(3, report.chunks());
+        verify(restTemplate).postForEntity(URL, members.subList(0, 2), Void.class);
+        verify(restTemplate).postForEntity(URL, members.subList(4, 5), Void.class);
+    }
+
+    @DisplayName("should retry only the chunk that failed")
+    @Test
+    void testRetryFailedChunk() {
+        var members = members(4);
+        when(restTemplate.postForEntity(URL, members.subList(0, 2), Void.class)).thenReturn(ResponseEntity.ok().build());
+        when(restTemplate.postForEntity(URL, members.subList(2, 4), Void.class))
+                .thenThrow(new ResourceAccessException("Read timed out"))
+                .thenReturn(ResponseEntity.ok().build());
+
+        var report = memberExporter.export(URL, members);
+
+        assertTrue(report.complete());
+        assertEquals(2, report.attempts());
+        assertEquals(List.of(), report.undelivered());
+        verify(restTemplate, times(1)).postForEntity(URL, members.subList(0, 2), Void.class);
+        verify(restTemplate, times(2)).postForEntity(URL, members.subList(2, 4), Void.class);
+    }
+
+    @DisplayName("should report chunks that still fail after the last attempt")
+    @Test
+    void testReportFailedChunks() {
+        var members = members(2);
+        when(restTemplate.postForEntity(eq(URL), anyList(), eq(Void.class))).thenThrow(new ResourceAccessException("refused"));
+
+        var report = memberExporter.export(URL, members);
+
+        assertFalse(report.complete());
+        assertEquals(1, report.failedChunks());
+        assertEquals(members, report.undelivered());
+        verify(restTemplate, times(3)).postForEntity(URL, members, Void.class);
+    }
+}
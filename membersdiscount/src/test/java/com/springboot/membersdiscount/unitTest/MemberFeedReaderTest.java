@@ -0,0 +1,88 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.service.MemberFeedReader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemberFeedReaderTest {
+
+    private MemberFeedReader memberFeedReader;
+
+    @BeforeEach
+    void setUp() {
+        memberFeedReader = new MemberFeedReader(new ObjectMapper().findAndRegisterModules());
+    }
+
+    private InputStream json(String value) {
+        return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @DisplayName("should hand members to the consumer in chunks of the given size")
+    @Test
+    void testReadInChunks() throws IOException {
+        var feed = json("""
+                [{"id":1,"name":"Ola","hasPaid":true,"deadline":"2025-01-10"},
+                 {"id":2,"name":"Anne"},
+                 {"id":3,"name":"Tor"},
+                 {"id":4,"name":"Kari"},
+                 {"id":5,"name":"Per"}]
+                """);
+        List<List<Member>> chunks = new ArrayList<>();
+
+        var result = memberFeedReader.read(feed, 2, chunks::add);
+
+        assertEquals(new MemberFeedReader.ReadResult(5, 0), result);
+        assertEquals(List.of(2, 2, 1), chunks.stream().map(List::size).toList());
+        assertEquals("Ola", chunks.get(0).get(0).getName());
+        assertTrue(chunks.get(0).get(0).getHasPaid());
+        assertEquals(5L, chunks.get(2).get(0).getId());
+    }
+
+    @DisplayName("should skip a malformed member and keep reading the feed")
+    @Test
+    void testSkipMalformedMember() throws IOException {
+        var feed = json("""
+                [{"id":1,"name":"Ola"},
+                 {"id":2,"name":"Anne","deadline":"not-a-date"},
+                 {"id":3,"name":"Tor"}]
+                """);
+        List<Member> members = new ArrayList<>();
+
+        var result = memberFeedReader.read(feed, 10, members::addAll);
+
+        assertEquals(new MemberFeedReader.ReadResult(2, 1), result);
+        assertEquals(List.of(1L, 3L), members.stream().map(Member::getId).toList());
+    }
+
+    @DisplayName("should skip null, scalar and array elements and read the members after them")
+    @Test
+    void testSkipElementsThatAreNotMembers() throws IOException {
+        var feed = json("""
+                [{"id":1,"name":"Ola"}, null, 42, "Anne", [{"id":9}], {"id":2,"name":"Tor"}]
+                """);
+        List<Member> members = new ArrayList<>();
+
+        var result = memberFeedReader.read(feed, 10, members::addAll);
+
+        assertEquals(new MemberFeedReader.ReadResult(2, 4), result);
+        assertEquals(List.of(1L, 2L), members.stream().map(Member::getId).toList());
+    }
+
+    @DisplayName("should reject a response that is not a JSON array")
+    @Test
+    void testRejectNonArray() {
+        assertThrows(IOException.class, () -> memberFeedReader.read(json("{\"id\":1}"), 10, chunk -> { }));
+    }
+}
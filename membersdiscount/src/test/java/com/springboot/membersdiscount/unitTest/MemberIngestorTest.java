@@ -0,0 +1,155 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.springboot.membersdiscount.config.TaskExecutors;
+import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.model.UpsertResult;
+import com.springboot.membersdiscount.service.MemberIngestor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemberIngestorTest {
+
+    private final MemberIngestor memberIngestor = new MemberIngestor(new TaskExecutors(false));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(memberIngestor, "parallelism", 8);
+        ReflectionTestUtils.setField(memberIngestor, "connectionPoolSize", 5);
+        ReflectionTestUtils.setField(memberIngestor, "reservedConnections", 2);
+        ReflectionTestUtils.setField(memberIngestor, "maxAttempts", 3);
+        ReflectionTestUtils.setField(memberIngestor, "backoffMillis", 1L);
+        memberIngestor.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        memberIngestor.stop();
+    }
+
+    private List<Member> partition(long... ids) {
+        return LongStream.of(ids).mapToObj(id -> {
+            var member = new Member();
+            member.setId(id);
+            return member;
+        }).toList();
+    }
+
+    private static Member member(long id, String name) {
+        var member = new Member();
+        member.setId(id);
+        member.setName(name);
+        return member;
+    }
+
+    @DisplayName("should write partitions sorted by ID with no more in flight than the spare connections")
+    @Test
+    void testPartitionsBoundedByConnections() {
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        var written = new ConcurrentLinkedQueue<List<Long>>();
+        var run = memberIngestor.start(members -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            written.add(members.stream().map(Member::getId).toList());
+            return new UpsertResult(members.size(), 0, 0);
+        });
+
+        for (int i = 0; i < 10; i++) {
+            run.submit(partition(i * 10 + 2, i * 10 + 1));
+        }
+        var totals = run.await();
+
+        assertEquals(20, totals.inserted());
+        assertEquals(20, written.stream().mapToInt(List::size).sum());
+        assertTrue(written.stream().allMatch(ids -> ids.size() <= 2));
+        assertTrue(written.stream().allMatch(ids -> ids.equals(ids.stream().sorted().toList())));
+        assertTrue(maxRunning.get() <= 3, "at most pool size minus reserved connections in flight");
+    }
+
+    @DisplayName("should never write the same member ID in two partitions at once and store its last record")
+    @Test
+    void testSameIdNeverInFlightTwice() {
+        var inFlightIds = ConcurrentHashMap.<Long>newKeySet();
+        var overlaps = new AtomicInteger();
+        var stored = new ConcurrentHashMap<Long, String>();
+        var run = memberIngestor.start(members -> {
+            members.forEach(m -> {
+                if (!inFlightIds.add(m.getId())) {
+                    overlaps.incrementAndGet();
+                }
+            });
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            members.forEach(m -> stored.put(m.getId(), m.getName()));
+            members.forEach(m -> inFlightIds.remove(m.getId()));
+            return new UpsertResult(0, members.size(), 0);
+        });
+
+        // the feed repeats IDs 1..20 across 30 chunks, the last record of every ID names its chunk
+        Map<Long, String> last = new HashMap<>();
+        for (int chunk = 0; chunk < 30; chunk++) {
+            List<Member> members = new ArrayList<>();
+            for (long id = 1 + chunk % 3; id <= 20; id += 3) {
+                members.add(member(id, "chunk " + chunk));
+                last.put(id, "chunk " + chunk);
+            }
+            run.submit(members);
+        }
+        var totals = run.await();
+
+        assertEquals(0, overlaps.get());
+        assertEquals(last, stored);
+        assertEquals(30 * 20 / 3, totals.processed());
+    }
+
+    @DisplayName("should retry lock failures and count a partition that keeps failing as failed")
+    @Test
+    void testRetryAndFail() {
+        var attempts = new AtomicInteger();
+        var failedPartition = new AtomicReference<List<Member>>(List.of());
+        var run = memberIngestor.start(members -> {
+            if (attempts.incrementAndGet() <= 2) {
+                throw new CannotAcquireLockException("Deadlock found when trying to get lock");
+            }
+            if (members.stream().anyMatch(m -> m.getId() == 5L)) {
+                failedPartition.set(members);
+                throw new DataIntegrityViolationException("bad row");
+            }
+            return new UpsertResult(0, members.size(), 0);
+        });
+
+        run.submit(partition(1, 2));
+        run.submit(partition(5, 6, 7));
+        var totals = run.await();
+
+        assertTrue(attempts.get() > 2);
+        assertEquals(failedPartition.get().size(), totals.failed());
+        assertTrue(totals.failed() >= 1);
+        assertEquals(5, totals.updated() + totals.failed());
+    }
+}
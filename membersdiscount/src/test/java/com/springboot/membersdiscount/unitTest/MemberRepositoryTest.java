@@ -0,0 +1,119 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.model.MemberPriceRow;
+import com.springboot.membersdiscount.repository.MemberRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop"})
+public class MemberRepositoryTest {
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 15);
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Member oldPaid;
+    private Member oldUnpaid;
+    private Member newPaid;
+    private Member noMemberSince;
+
+    private Member persist(String name, boolean hasPaid, LocalDate memberSince, LocalDate deadline) {
+        var member = new Member();
+        member.setName(name);
+        member.setEmail(name.toLowerCase() + "@example.com");
+        member.setPrice(100.0);
+        member.setHasPaid(hasPaid);
+        member.setMemberSince(memberSince);
+        member.setDeadline(deadline);
+        return entityManager.persist(member);
+    }
+
+    @BeforeEach
+    void setUp() {
+        oldPaid = persist("Ola", true, TODAY.minusYears(5), TODAY.plusDays(1));
+        oldUnpaid = persist("Anne", false, TODAY.minusYears(4), TODAY.plusDays(3));
+        newPaid = persist("Tor", true, TODAY.minusYears(1), TODAY.plusDays(4));
+        noMemberSince = persist("Kari", false, null, TODAY);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private static List<Long> ids(List<MemberPriceRow> rows) {
+        return rows.stream().map(MemberPriceRow::id).toList();
+    }
+
+    @DisplayName("should find members who joined before the cutoff, only paid ones when asked to")
+    @Test
+    void testFindPricesJoinedBefore() {
+        LocalDate cutoff = TODAY.minusYears(3);
+
+        assertEquals(List.of(oldPaid.getId()), ids(memberRepository.findPricesJoinedBefore(cutoff, true)));
+        assertEquals(List.of(oldPaid.getId(), oldUnpaid.getId()), ids(memberRepository.findPricesJoinedBefore(cutoff, false)));
+    }
+
+    @DisplayName("should find every member, including those without a memberSince, for rules without tenure")
+    @Test
+    void testFindPrices() {
+        assertEquals(List.of(oldPaid.getId(), newPaid.getId()), ids(memberRepository.findPrices(true)));
+        assertEquals(List.of(oldPaid.getId(), oldUnpaid.getId(), newPaid.getId(), noMemberSince.getId()),
+                ids(memberRepository.findPrices(false)));
+    }
+
+    @DisplayName("should find members who joined within a half-open date range")
+    @Test
+    void testFindPricesJoinedBetween() {
+        var rows = memberRepository.findPricesJoinedBetween(TODAY.minusYears(4), TODAY.minusYears(1), false);
+
+        assertEquals(List.of(oldUnpaid.getId()), ids(rows));
+        assertEquals(new MemberPriceRow(oldUnpaid.getId(), "Anne", "anne@example.com", null, 100.0,
+                TODAY.minusYears(4), false), rows.get(0));
+    }
+
+    @DisplayName("should find unpaid members with a deadline in the range, both ends included")
+    @Test
+    void testFindUnpaidWithDeadlineBetween() {
+        var members = memberRepository.findByHasPaidFalseAndDeadlineBetween(TODAY, TODAY.plusDays(3));
+
+        assertEquals(List.of(oldUnpaid.getId(), noMemberSince.getId()),
+                members.stream().map(Member::getId).sorted().toList());
+    }
+
+    @DisplayName("should page by ID after a keyset")
+    @Test
+    void testKeysetPage() {
+        var page = memberRepository.findByIdGreaterThanOrderByIdAsc(oldPaid.getId(), Limit.of(2));
+
+        assertEquals(List.of(oldUnpaid.getId(), newPaid.getId()), page.stream().map(Member::getId).toList());
+    }
+
+    @DisplayName("should create the indexes the eligibility and deadline queries rely on")
+    @Test
+    void testIndexesCreated() {
+        var indexes = jdbcTemplate.queryForList("""
+                SELECT LOWER(INDEX_NAME) FROM INFORMATION_SCHEMA.INDEXES WHERE LOWER(TABLE_NAME) = 'members'
+                """, String.class);
+
+        assertTrue(indexes.contains("idx_members_paid_since"), indexes::toString);
+        assertTrue(indexes.contains("idx_members_paid_deadline"), indexes::toString);
+    }
+}
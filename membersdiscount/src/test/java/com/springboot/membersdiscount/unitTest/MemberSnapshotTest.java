@@ -0,0 +1,103 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.springboot.membersdiscount.exception.InvalidSnapshotException;
+import com.springboot.membersdiscount.model.Member;
+import com.springboot.membersdiscount.snapshot.MemberSnapshotReader;
+import com.springboot.membersdiscount.snapshot.MemberSnapshotWriter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemberSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @DisplayName("should read back every member across several blocks, including null fields and non-ASCII names")
+    @Test
+    void testRoundTrip() throws Exception {
+        List<Member> members = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) {
+            members.add(member(id, "Member " + id, 100.0 + id, id % 2 == 0));
+        }
+        Member sparse = new Member();
+        sparse.setId(11L);
+        sparse.setName("Åse Ødegård");
+        members.add(sparse);
+
+        Path file = dir.resolve("members.mbrs");
+        try (var writer = new MemberSnapshotWriter(file, 4)) {
+            for (Member member : members) {
+                writer.write(member);
+            }
+        }
+
+        List<Member> read = new ArrayList<>();
+        try (var reader = new MemberSnapshotReader(file)) {
+            assertEquals(11, reader.getMembers());
+            int blocks = 0;
+            for (var block = reader.nextBlock(); !block.isEmpty(); block = reader.nextBlock()) {
+                read.addAll(block);
+                blocks++;
+            }
+            assertEquals(3, blocks);
+        }
+        assertEquals(members, read);
+        assertNull(read.get(10).getPrice());
+        assertNull(read.get(10).getMemberSince());
+        assertNull(read.get(10).getHasPaid());
+        assertFalse(Files.exists(dir.resolve("members.mbrs.tmp")));
+    }
+
+    @DisplayName("should reject a snapshot whose block was changed on disk")
+    @Test
+    void testCorruptBlock() throws Exception {
+        Path file = dir.resolve("members.mbrs");
+        try (var writer = new MemberSnapshotWriter(file, 8)) {
+            writer.write(member(1L, "Ola", 100.0, true));
+        }
+        try (var raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(raf.length() - 1);
+            raf.write('x');
+        }
+
+        try (var reader = new MemberSnapshotReader(file)) {
+            assertThrows(InvalidSnapshotException.class, reader::nextBlock);
+        }
+    }
+
+    @DisplayName("should not replace an existing snapshot when the export is aborted")
+    @Test
+    void testAbort() throws Exception {
+        Path file = dir.resolve("members.mbrs");
+        Files.writeString(file, "previous");
+        var writer = new MemberSnapshotWriter(file, 8);
+        writer.write(member(1L, "Ola", 100.0, true));
+        writer.abort();
+
+        assertEquals("previous", Files.readString(file));
+        assertThrows(InvalidSnapshotException.class, () -> new MemberSnapshotReader(file));
+    }
+
+    private Member member(long id, String name, double price, boolean hasPaid) {
+        Member member = new Member();
+        member.setId(id);
+        member.setName(name);
+        member.setEmail(name.toLowerCase().replace(' ', '.') + "@example.com");
+        member.setLocation("Oslo");
+        member.setPrice(price);
+        member.setMemberSince(LocalDate.of(2020, 1, 1).plusDays(id));
+        member.setHasPaid(hasPaid);
+        member.setDeadline(LocalDate.of(2025, 6, 1));
+        return member;
+    }
+}
@@ -0,0 +1,91 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.membersdiscount.service.PaymentEventReader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentEventReaderTest {
+
+    private PaymentEventReader paymentEventReader;
+
+    @BeforeEach
+    void setUp() {
+        paymentEventReader = new PaymentEventReader(new ObjectMapper());
+    }
+
+    private InputStream body(String value) {
+        return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @DisplayName("should batch NDJSON member IDs sorted, counting repeated IDs as duplicates and skipping invalid lines")
+    @Test
+    void testReadNdjson() throws IOException {
+        var events = body("""
+                {"memberId":5,"amount":100.0}
+                {"memberId":3}
+                not json
+
+                {"id":"4"}
+                {"memberId":3}
+                {"amount":12}
+                """);
+        List<List<Long>> batches = new ArrayList<>();
+
+        var result = paymentEventReader.read(events, PaymentEventReader.Format.NDJSON, 2,
+                batch -> batches.add(List.copyOf(batch)));
+
+        assertEquals(4, result.events());
+        assertEquals(2, result.invalid());
+        assertEquals(1, result.duplicates());
+        assertEquals(List.of(List.of(3L, 5L), List.of(4L)), batches);
+    }
+
+    @DisplayName("should read the memberId column of a CSV with a header, with commas and quotes inside quoted cells")
+    @Test
+    void testReadCsvWithHeader() throws IOException {
+        var events = body("""
+                paymentId,"Payer, name","memberId",amount
+                p-1,"Hansen, Ola",7,100.0
+                p-2,"Ola ""Junior"" Hansen", "8" ,50.0
+                p-3,Kari,,10.0
+                p-4,"Nordmann, Kari,9,10.0
+                """);
+        List<Long> ids = new ArrayList<>();
+
+        var result = paymentEventReader.read(events, PaymentEventReader.Format.CSV, 100, ids::addAll);
+
+        assertEquals(2, result.events());
+        assertEquals(2, result.invalid());
+        assertEquals(List.of(7L, 8L), ids);
+    }
+
+    @DisplayName("should reject a CSV whose first line is not a header with a member ID column")
+    @Test
+    void testReadCsvRequiresHeader() {
+        assertThrows(IllegalArgumentException.class, () -> paymentEventReader.read(body("12,2025-01-01\n"),
+                PaymentEventReader.Format.CSV, 100, batch -> fail("no batch expected")));
+    }
+
+    @DisplayName("should read the first column of a CSV without a header")
+    @Test
+    void testReadCsvWithoutHeader() throws IOException {
+        List<Long> ids = new ArrayList<>();
+
+        var result = paymentEventReader.read(body("12,2025-01-01\n11,2025-01-02\n"),
+                PaymentEventReader.Format.CSV_WITHOUT_HEADER, 100, ids::addAll);
+
+        assertEquals(2, result.events());
+        assertEquals(List.of(11L, 12L), ids);
+    }
+}
@@ -0,0 +1,60 @@
+package com.springboot.membersdiscount.unitTest;
+
+import com.springboot.membersdiscount.config.TaskExecutors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskExecutorsTest {
+
+    @DisplayName("should fall back to platform thread pools when virtual threads are off or not supported")
+    @Test
+    void testPlatformFallback() {
+        var environment = new MockEnvironment().withProperty("spring.threads.virtual.enabled", "true");
+        var taskExecutors = new TaskExecutors(environment);
+        boolean supported = Runtime.version().feature() >= 21;
+
+        assertEquals(supported, taskExecutors.isVirtual());
+        ExecutorService pool = new TaskExecutors(false).newBoundedExecutor("test-", 2);
+        assertInstanceOf(ThreadPoolExecutor.class, pool);
+        pool.shutdownNow();
+    }
+
+    @DisplayName("should run every task on its own thread with no more than the limit at once")
+    @Test
+    void testThreadPerTaskLimit() throws Exception {
+        var executor = new TaskExecutors.ThreadPerTaskExecutor(new CustomizableThreadFactory("per-task-"), 3);
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        var done = new CountDownLatch(12);
+
+        for (int i = 0; i < 12; i++) {
+            executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(maxRunning.get() <= 3);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }));
+    }
+}